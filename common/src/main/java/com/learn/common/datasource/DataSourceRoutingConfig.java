@@ -0,0 +1,87 @@
+package com.learn.common.datasource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Replaces the auto-configured datasource with a primary/replica router when
+ * {@code datasource.routing.enabled=true}. Service methods marked
+ * {@code @Transactional(readOnly = true)} are served by a replica. Services
+ * opt in with {@code @Import(DataSourceRoutingConfig.class)}.
+ *
+ * Both pools honour {@code spring.datasource.hikari.*} like the auto-configured
+ * pool would; a replica can override any of them under
+ * {@code datasource.routing.replicas[n].hikari.*}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+public class DataSourceRoutingConfig {
+
+    private static final String HIKARI_PREFIX = "spring.datasource.hikari";
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                             ReplicaRoutingProperties routingProperties,
+                                                             Environment environment,
+                                                             @Value("${spring.application.name}") String applicationName) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        binder.bind(HIKARI_PREFIX, Bindable.ofInstance(primary));
+        // Set after binding: pool names must stay distinct for JMX and metrics
+        primary.setPoolName(applicationName + "-primary");
+
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < routingProperties.getReplicas().size(); i++) {
+            ReplicaRoutingProperties.Replica replica = routingProperties.getReplicas().get(i);
+            HikariDataSource pool = new HikariDataSource();
+            binder.bind(HIKARI_PREFIX, Bindable.ofInstance(pool));
+            binder.bind("datasource.routing.replicas[" + i + "].hikari", Bindable.ofInstance(pool));
+            pool.setPoolName(applicationName + "-replica-" + i);
+            pool.setJdbcUrl(replica.getUrl());
+            pool.setUsername(replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.getUsername());
+            pool.setPassword(replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.getPassword());
+            pool.setDriverClassName(dataSourceProperties.getDriverClassName());
+            if (replica.getMaximumPoolSize() != null) {
+                pool.setMaximumPoolSize(replica.getMaximumPoolSize());
+            }
+            pool.setReadOnly(true);
+            // Let the service start even if a replica is down; the lag monitor keeps it out of rotation
+            pool.setInitializationFailTimeout(-1);
+            replicas.put(pool.getPoolName(), pool);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    // The lazy proxy defers fetching a connection until the first statement, by which
+    // point the transaction's read-only flag is known to the router
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                               ReplicaRoutingProperties routingProperties) {
+        return new ReplicaLagMonitor(replicaRoutingDataSource, routingProperties);
+    }
+}
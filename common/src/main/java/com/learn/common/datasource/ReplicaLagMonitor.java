@@ -0,0 +1,67 @@
+package com.learn.common.datasource;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Periodically measures how far each replica trails the primary and moves it
+ * in or out of rotation. Runs every
+ * {@code datasource.routing.health-check-interval-ms}.
+ */
+public class ReplicaLagMonitor implements SchedulingConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // Zero when the replica has replayed everything it received, otherwise seconds since the last
+    // replayed commit. NULL when the server is not in recovery or has not replayed anything yet:
+    // neither proves the data is current, so both keep it out of rotation
+    private static final String LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_xact_replay_timestamp() IS NULL THEN NULL " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final ReplicaRoutingProperties properties;
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routingDataSource, ReplicaRoutingProperties properties) {
+        this.routingDataSource = routingDataSource;
+        this.properties = properties;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::checkReplicas, Duration.ofMillis(properties.getHealthCheckIntervalMs()));
+    }
+
+    public void checkReplicas() {
+        for (Map.Entry<String, HikariDataSource> replica : routingDataSource.getReplicas().entrySet()) {
+            String key = replica.getKey();
+            try {
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(replica.getValue());
+                jdbcTemplate.setQueryTimeout(2);
+                Double lagSeconds = jdbcTemplate.queryForObject(LAG_SQL, Double.class);
+                if (lagSeconds == null) {
+                    log.warn("Replica {} is not replaying from the primary yet", key);
+                    routingDataSource.markHealthy(key, false);
+                    continue;
+                }
+                boolean withinBudget = lagSeconds <= properties.getMaxLagSeconds();
+                if (!withinBudget) {
+                    log.warn("Replica {} lagging {}s behind primary (max {}s)", key, lagSeconds, properties.getMaxLagSeconds());
+                }
+                routingDataSource.markHealthy(key, withinBudget);
+            } catch (Exception e) {
+                log.warn("Replica {} health check failed: {}", key, e.getMessage());
+                routingDataSource.markHealthy(key, false);
+            }
+        }
+    }
+}
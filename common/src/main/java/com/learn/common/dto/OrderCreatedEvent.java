@@ -1,16 +1,17 @@
 package com.learn.common.dto;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import com.learn.common.money.Money;
+
 public class OrderCreatedEvent {
 
     private Long orderId;
     private String customerName;
     private String customerEmail;
     private String status;
-    private BigDecimal totalAmount;
+    private Money totalAmount;
     private LocalDateTime createdAt;
     private List<OrderItemEvent> orderItems;
 
@@ -20,7 +21,7 @@ public class OrderCreatedEvent {
 
     // All-args constructor
     public OrderCreatedEvent(Long orderId, String customerName, String customerEmail, String status,
-                             BigDecimal totalAmount, LocalDateTime createdAt, List<OrderItemEvent> orderItems) {
+                             Money totalAmount, LocalDateTime createdAt, List<OrderItemEvent> orderItems) {
         this.orderId = orderId;
         this.customerName = customerName;
         this.customerEmail = customerEmail;
@@ -63,11 +64,11 @@ public class OrderCreatedEvent {
         this.status = status;
     }
 
-    public BigDecimal getTotalAmount() {
+    public Money getTotalAmount() {
         return totalAmount;
     }
 
-    public void setTotalAmount(BigDecimal totalAmount) {
+    public void setTotalAmount(Money totalAmount) {
         this.totalAmount = totalAmount;
     }
 
@@ -92,15 +93,15 @@ public class OrderCreatedEvent {
         private Long productId;
         private String productName;
         private Integer quantity;
-        private BigDecimal unitPrice;
-        private BigDecimal totalPrice;
+        private Money unitPrice;
+        private Money totalPrice;
 
         // Default constructor
         public OrderItemEvent() {
         }
 
         // All-args constructor
-        public OrderItemEvent(Long productId, String productName, Integer quantity, BigDecimal unitPrice, BigDecimal totalPrice) {
+        public OrderItemEvent(Long productId, String productName, Integer quantity, Money unitPrice, Money totalPrice) {
             this.productId = productId;
             this.productName = productName;
             this.quantity = quantity;
@@ -133,19 +134,19 @@ public class OrderCreatedEvent {
             this.quantity = quantity;
         }
 
-        public BigDecimal getUnitPrice() {
+        public Money getUnitPrice() {
             return unitPrice;
         }
 
-        public void setUnitPrice(BigDecimal unitPrice) {
+        public void setUnitPrice(Money unitPrice) {
             this.unitPrice = unitPrice;
         }
 
-        public BigDecimal getTotalPrice() {
+        public Money getTotalPrice() {
             return totalPrice;
         }
 
-        public void setTotalPrice(BigDecimal totalPrice) {
+        public void setTotalPrice(Money totalPrice) {
             this.totalPrice = totalPrice;
         }
     }
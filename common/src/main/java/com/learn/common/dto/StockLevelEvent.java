@@ -0,0 +1,55 @@
+package com.learn.common.dto;
+
+/**
+ * Current stock of one product, published to the log-compacted stock-levels
+ * topic keyed by product id. A record with a null value (tombstone) means the
+ * product was deleted.
+ */
+public class StockLevelEvent {
+
+    private Long productId;
+    private Integer stockQuantity;
+    private Long stockVersion;
+
+    // Default constructor
+    public StockLevelEvent() {
+    }
+
+    // All-args constructor
+    public StockLevelEvent(Long productId, Integer stockQuantity, Long stockVersion) {
+        this.productId = productId;
+        this.stockQuantity = stockQuantity;
+        this.stockVersion = stockVersion;
+    }
+
+    // Getters and Setters
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public void setStockQuantity(Integer stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+
+    // products.stock_version of the level: incremented by every stock write, so a higher one is newer
+    public Long getStockVersion() {
+        return stockVersion;
+    }
+
+    public void setStockVersion(Long stockVersion) {
+        this.stockVersion = stockVersion;
+    }
+
+    @Override
+    public String toString() {
+        return "StockLevelEvent{productId=" + productId + ", stockQuantity=" + stockQuantity + ", stockVersion=" + stockVersion + "}";
+    }
+}
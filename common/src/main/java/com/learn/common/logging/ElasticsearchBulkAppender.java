@@ -0,0 +1,579 @@
+package com.learn.common.logging;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.management.ObjectName;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * Logback appender that ships log events straight to the Elasticsearch
+ * {@code _bulk} API, as an alternative to the file -> Filebeat -> Logstash path.
+ *
+ * Events are snapshotted on the logging thread and handed to a bounded queue;
+ * a single worker thread batches them by count, size and time, writes NDJSON
+ * into the same {@code microservices-<environment>-logs-yyyy.MM.dd} indices the
+ * Logstash pipeline uses, and posts it gzip-compressed. When the queue is full
+ * events are dropped (after waiting up to {@code maxBlockMillis}) rather than
+ * stalling the application. Batches that cannot be delivered are spilled to a
+ * bounded spool directory and replayed, oldest first and ahead of any new
+ * batch, once the retry backoff has passed.
+ */
+public class ElasticsearchBulkAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements ElasticsearchBulkAppenderMBean {
+
+    private static final DateTimeFormatter INDEX_DATE = DateTimeFormatter.ofPattern("yyyy.MM.dd").withZone(ZoneOffset.UTC);
+    private static final String SPOOL_SUFFIX = ".ndjson.gz";
+
+    private boolean enabled = true;
+    private String url = "http://localhost:9200";
+    private String serviceName = "unknown-service";
+    private String environment = "local";
+    private String indexPrefix = "microservices";
+    private int queueSize = 8192;
+    private int batchSize = 500;
+    private int maxBatchBytes = 5 * 1024 * 1024;
+    private long flushIntervalMillis = 1000;
+    private long maxBlockMillis = 0;
+    private long requestTimeoutMillis = 10000;
+    private long retryBackoffMillis = 5000;
+    private boolean compress = true;
+    private String spoolDirectory;
+    private long maxSpoolBytes = 100L * 1024 * 1024;
+
+    private final AtomicLong enqueuedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong shippedEvents = new AtomicLong();
+    private final AtomicLong spilledEvents = new AtomicLong();
+    private final AtomicLong replayedEvents = new AtomicLong();
+    private final AtomicLong bulkRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong bulkItemErrors = new AtomicLong();
+    private final AtomicLong spoolBytes = new AtomicLong();
+    private final AtomicLong spoolSequence = new AtomicLong();
+
+    private BlockingQueue<LogDocument> queue;
+    private HttpClient httpClient;
+    private URI bulkUri;
+    private Path spoolPath;
+    private Thread worker;
+    private ObjectName objectName;
+    private volatile boolean running;
+    private volatile long nextAttemptAt;
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            addInfo("Elasticsearch bulk appender [" + getName() + "] is disabled");
+            super.start();
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueSize);
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(requestTimeoutMillis))
+                .build();
+        bulkUri = URI.create(url.replaceAll("/+$", "") + "/_bulk");
+        if (spoolDirectory != null && !spoolDirectory.isBlank()) {
+            try {
+                spoolPath = Paths.get(spoolDirectory);
+                Files.createDirectories(spoolPath);
+                spoolBytes.set(spoolFiles().stream().mapToLong(ElasticsearchBulkAppender::sizeOf).sum());
+            } catch (IOException e) {
+                addError("Cannot use spool directory " + spoolDirectory + ", undeliverable batches will be dropped", e);
+                spoolPath = null;
+            }
+        }
+        registerMBean();
+        running = true;
+        worker = new Thread(this::runWorker, "es-bulk-appender-" + getName());
+        worker.setDaemon(true);
+        worker.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        running = false;
+        if (worker != null) {
+            try {
+                // Give the worker one more flush to drain what is queued
+                worker.join(flushIntervalMillis + requestTimeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        unregisterMBean();
+        super.stop();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (!enabled || !running) {
+            return;
+        }
+        LogDocument document = LogDocument.of(event);
+        boolean accepted;
+        try {
+            accepted = maxBlockMillis > 0
+                    ? queue.offer(document, maxBlockMillis, TimeUnit.MILLISECONDS)
+                    : queue.offer(document);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (accepted) {
+            enqueuedEvents.incrementAndGet();
+        } else {
+            droppedEvents.incrementAndGet();
+        }
+    }
+
+    /**
+     * Ships everything queued so far and returns once it has been sent or spilled.
+     * Intended for tests and shutdown hooks; the worker normally flushes on its own.
+     */
+    public void flush() {
+        if (queue == null) {
+            return;
+        }
+        List<LogDocument> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        ship(batch);
+    }
+
+    private void runWorker() {
+        List<LogDocument> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                long wait = batch.isEmpty() ? flushIntervalMillis : Math.max(0, deadline - System.currentTimeMillis());
+                LogDocument document = running ? queue.poll(wait, TimeUnit.MILLISECONDS) : queue.poll();
+                if (document != null) {
+                    if (batch.isEmpty()) {
+                        deadline = System.currentTimeMillis() + flushIntervalMillis;
+                    }
+                    batch.add(document);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                boolean due = batch.size() >= batchSize || System.currentTimeMillis() >= deadline || !running;
+                if (!batch.isEmpty() && due) {
+                    ship(batch);
+                    batch.clear();
+                } else if (batch.isEmpty() && document == null) {
+                    replaySpool();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                addError("Unexpected failure shipping logs to Elasticsearch", e);
+                batch.clear();
+            }
+        }
+    }
+
+    private void ship(List<LogDocument> batch) {
+        // Spooled batches go first, also while logging never leaves the worker idle;
+        // if Elasticsearch is still down this batch is spilled behind them
+        replaySpool();
+        StringBuilder ndjson = new StringBuilder();
+        int documents = 0;
+        for (LogDocument document : batch) {
+            document.writeBulkLines(ndjson, indexPrefix, environment, serviceName);
+            documents++;
+            if (ndjson.length() >= maxBatchBytes) {
+                send(ndjson.toString().getBytes(StandardCharsets.UTF_8), documents);
+                ndjson.setLength(0);
+                documents = 0;
+            }
+        }
+        if (documents > 0) {
+            send(ndjson.toString().getBytes(StandardCharsets.UTF_8), documents);
+        }
+    }
+
+    private void send(byte[] ndjson, int documents) {
+        byte[] gzipped = gzip(ndjson);
+        if (System.currentTimeMillis() < nextAttemptAt) {
+            // Elasticsearch failed recently, do not hold the worker on another timeout
+            spill(gzipped, documents);
+            return;
+        }
+        if (post(compress ? gzipped : ndjson, compress)) {
+            shippedEvents.addAndGet(documents);
+        } else {
+            spill(gzipped, documents);
+        }
+    }
+
+    private boolean post(byte[] body, boolean gzipped) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(bulkUri)
+                .timeout(Duration.ofMillis(requestTimeoutMillis))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (gzipped) {
+            request.header("Content-Encoding", "gzip");
+        }
+        bulkRequests.incrementAndGet();
+        try {
+            HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            if (status >= 200 && status < 300) {
+                // Item-level rejections (mapping conflicts etc.) would fail again on retry, only count them
+                if (response.body().contains("\"errors\":true")) {
+                    bulkItemErrors.incrementAndGet();
+                    addWarn("Elasticsearch rejected some documents of a bulk request");
+                }
+                return true;
+            }
+            failedRequests.incrementAndGet();
+            addWarn("Elasticsearch bulk request failed with status " + status);
+        } catch (IOException e) {
+            failedRequests.incrementAndGet();
+            addWarn("Elasticsearch unreachable at " + bulkUri + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedRequests.incrementAndGet();
+        }
+        nextAttemptAt = System.currentTimeMillis() + retryBackoffMillis;
+        return false;
+    }
+
+    private void spill(byte[] gzipped, int documents) {
+        if (spoolPath == null || spoolBytes.get() + gzipped.length > maxSpoolBytes) {
+            droppedEvents.addAndGet(documents);
+            return;
+        }
+        // Wall-clock time orders files across restarts, the sequence orders files spilled within the same millisecond
+        Path file = spoolPath.resolve(String.format("%015d-%010d-%d%s",
+                System.currentTimeMillis(), spoolSequence.incrementAndGet(), documents, SPOOL_SUFFIX));
+        try {
+            Files.write(file, gzipped);
+            spoolBytes.addAndGet(gzipped.length);
+            spilledEvents.addAndGet(documents);
+        } catch (IOException e) {
+            addError("Failed to spill log batch to " + file, e);
+            droppedEvents.addAndGet(documents);
+        }
+    }
+
+    private void replaySpool() {
+        if (spoolPath == null || spoolBytes.get() == 0 || System.currentTimeMillis() < nextAttemptAt) {
+            return;
+        }
+        for (Path file : spoolFiles()) {
+            try {
+                byte[] gzipped = Files.readAllBytes(file);
+                byte[] body = compress ? gzipped : gunzip(gzipped);
+                if (!post(body, compress)) {
+                    return;
+                }
+                Files.delete(file);
+                spoolBytes.addAndGet(-gzipped.length);
+                replayedEvents.addAndGet(spooledDocuments(file));
+            } catch (IOException e) {
+                addError("Failed to replay spooled log batch " + file, e);
+                return;
+            }
+        }
+    }
+
+    private List<Path> spoolFiles() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(spoolPath, "*" + SPOOL_SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            addError("Failed to list spool directory " + spoolPath, e);
+        }
+        // File names start with a zero-padded epoch millis and sequence, so this replays oldest first
+        files.sort(null);
+        return files;
+    }
+
+    private static long spooledDocuments(Path file) {
+        String name = file.getFileName().toString();
+        String count = name.substring(name.lastIndexOf('-') + 1, name.length() - SPOOL_SUFFIX.length());
+        try {
+            return Long.parseLong(count);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            objectName = new ObjectName("com.learn.logging:type=ElasticsearchBulkAppender,name=" + ObjectName.quote(getName()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (Exception e) {
+            addWarn("Could not register shipping metrics MBean", e);
+            objectName = null;
+        }
+    }
+
+    private void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            addWarn("Could not unregister shipping metrics MBean", e);
+        }
+    }
+
+    // Metrics
+
+    @Override
+    public long getEnqueuedEvents() {
+        return enqueuedEvents.get();
+    }
+
+    @Override
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    @Override
+    public long getShippedEvents() {
+        return shippedEvents.get();
+    }
+
+    @Override
+    public long getSpilledEvents() {
+        return spilledEvents.get();
+    }
+
+    @Override
+    public long getReplayedEvents() {
+        return replayedEvents.get();
+    }
+
+    @Override
+    public long getBulkRequests() {
+        return bulkRequests.get();
+    }
+
+    @Override
+    public long getFailedRequests() {
+        return failedRequests.get();
+    }
+
+    @Override
+    public long getBulkItemErrors() {
+        return bulkItemErrors.get();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    @Override
+    public long getSpoolBytes() {
+        return spoolBytes.get();
+    }
+
+    // Configuration (set from logback-spring.xml)
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public void setServiceName(String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+
+    public void setIndexPrefix(String indexPrefix) {
+        this.indexPrefix = indexPrefix;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setMaxBatchBytes(int maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public void setMaxBlockMillis(long maxBlockMillis) {
+        this.maxBlockMillis = maxBlockMillis;
+    }
+
+    public void setRequestTimeoutMillis(long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    public void setRetryBackoffMillis(long retryBackoffMillis) {
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public void setMaxSpoolBytes(long maxSpoolBytes) {
+        this.maxSpoolBytes = maxSpoolBytes;
+    }
+
+    /**
+     * Immutable snapshot of a logging event, taken on the caller's thread so the
+     * worker never touches the (mutable, thread-bound) logback event.
+     */
+    private record LogDocument(long timestamp, String level, String logger, String thread,
+                               String message, String stackTrace, Map<String, String> mdc) {
+
+        static LogDocument of(ILoggingEvent event) {
+            String stackTrace = event.getThrowableProxy() != null
+                    ? ThrowableProxyUtil.asString(event.getThrowableProxy())
+                    : null;
+            return new LogDocument(event.getTimeStamp(), event.getLevel().toString(), event.getLoggerName(),
+                    event.getThreadName(), event.getFormattedMessage(), stackTrace, event.getMDCPropertyMap());
+        }
+
+        void writeBulkLines(StringBuilder out, String indexPrefix, String environment, String serviceName) {
+            Instant instant = Instant.ofEpochMilli(timestamp);
+            out.append("{\"index\":{\"_index\":\"").append(indexPrefix).append('-').append(environment)
+                    .append("-logs-").append(INDEX_DATE.format(instant)).append("\"}}\n");
+
+            out.append("{\"@timestamp\":\"").append(instant).append('"');
+            field(out, "level", level);
+            field(out, "logger", logger);
+            field(out, "thread", thread);
+            field(out, "message", message);
+            if (stackTrace != null) {
+                field(out, "stack_trace", stackTrace);
+            }
+            out.append(",\"service\":{\"name\":");
+            string(out, serviceName);
+            out.append('}');
+            field(out, "environment", environment);
+            out.append(",\"tags\":[");
+            string(out, "env-" + environment);
+            out.append(',');
+            string(out, serviceName);
+            out.append(']');
+            field(out, "collected_by", "es-bulk-appender");
+            if (mdc != null && !mdc.isEmpty()) {
+                out.append(",\"mdc\":{");
+                boolean first = true;
+                for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                    if (!first) {
+                        out.append(',');
+                    }
+                    string(out, entry.getKey());
+                    out.append(':');
+                    string(out, entry.getValue());
+                    first = false;
+                }
+                out.append('}');
+            }
+            out.append("}\n");
+        }
+
+        private static void field(StringBuilder out, String name, String value) {
+            out.append(",\"").append(name).append("\":");
+            string(out, value);
+        }
+
+        private static void string(StringBuilder out, String value) {
+            if (value == null) {
+                out.append("null");
+                return;
+            }
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> out.append("\\\"");
+                    case '\\' -> out.append("\\\\");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
+            out.append('"');
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.learn.common.logging;
+
+/**
+ * Shipping metrics of {@link ElasticsearchBulkAppender}, exposed over JMX as
+ * {@code com.learn.logging:type=ElasticsearchBulkAppender,name=<appender name>}.
+ */
+public interface ElasticsearchBulkAppenderMBean {
+
+    long getEnqueuedEvents();
+
+    long getDroppedEvents();
+
+    long getShippedEvents();
+
+    long getSpilledEvents();
+
+    long getReplayedEvents();
+
+    long getBulkRequests();
+
+    long getFailedRequests();
+
+    long getBulkItemErrors();
+
+    int getQueueDepth();
+
+    long getSpoolBytes();
+}
@@ -0,0 +1,183 @@
+package com.learn.common.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Immutable amount of money held as a {@code long} count of minor units
+ * (cents for USD) plus its currency. Arithmetic is exact and throws
+ * {@link ArithmeticException} on overflow instead of wrapping.
+ *
+ * JSON and the database still see a plain decimal ({@code 19.99}), so the
+ * wire format and the {@code DECIMAL(10,2)} columns are unchanged.
+ */
+@JsonSerialize(using = MoneyJsonSerializer.class)
+@JsonDeserialize(using = MoneyJsonDeserializer.class)
+public final class Money implements Comparable<Money> {
+
+    /** Currency assumed for amounts stored or sent without one. */
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return new Money(minorUnits, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, Objects.requireNonNull(currency, "currency"));
+    }
+
+    public static Money zero(Currency currency) {
+        return ofMinor(0, currency);
+    }
+
+    /** Converts a decimal amount, rejecting values with more decimals than the currency allows. */
+    public static Money of(BigDecimal amount, Currency currency) {
+        long minor = amount.setScale(fractionDigits(currency), RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        return ofMinor(minor, currency);
+    }
+
+    /**
+     * Parses a plain decimal such as {@code "19.99"} or {@code "-3"} without going
+     * through {@link BigDecimal}; anything else (exponents, excess precision) is
+     * left to {@link #of(BigDecimal, Currency)}.
+     */
+    public static Money parse(String text, Currency currency) {
+        int digits = fractionDigits(currency);
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long value = 0;
+        int fraction = -1;
+        boolean sawDigit = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else if (c >= '0' && c <= '9' && fraction < digits && value < Long.MAX_VALUE / 10) {
+                value = value * 10 + (c - '0');
+                sawDigit = true;
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            } else {
+                return of(new BigDecimal(text), currency);
+            }
+        }
+        if (!sawDigit) {
+            throw new NumberFormatException("Not a money amount: " + text);
+        }
+        long minor = Math.multiplyExact(value, POWERS_OF_TEN[digits - Math.max(fraction, 0)]);
+        return ofMinor(negative ? -minor : minor, currency);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(long factor) {
+        return new Money(Math.multiplyExact(minorUnits, factor), currency);
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, fractionDigits(currency));
+    }
+
+    /** Plain decimal text with the currency's number of decimals, e.g. {@code 19.90}. */
+    public String toPlainString() {
+        int digits = fractionDigits(currency);
+        if (digits == 0) {
+            return Long.toString(minorUnits);
+        }
+        long factor = POWERS_OF_TEN[digits];
+        long whole = minorUnits / factor;
+        long fraction = Math.abs(minorUnits % factor);
+        StringBuilder out = new StringBuilder(24);
+        if (minorUnits < 0 && whole == 0) {
+            out.append('-');
+        }
+        out.append(whole).append('.');
+        String fractionText = Long.toString(fraction);
+        for (int pad = fractionText.length(); pad < digits; pad++) {
+            out.append('0');
+        }
+        return out.append(fractionText).toString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money other)) {
+            return false;
+        }
+        return minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return currency.getCurrencyCode() + " " + toPlainString();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+
+    private static int fractionDigits(Currency currency) {
+        return Math.max(currency.getDefaultFractionDigits(), 0);
+    }
+}
@@ -0,0 +1,24 @@
+package com.learn.common.money;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Maps {@link Money} onto the existing {@code DECIMAL(10,2)} amount columns,
+ * which carry no currency of their own and hold {@link Money#DEFAULT_CURRENCY}.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money attribute) {
+        return attribute != null ? attribute.toBigDecimal() : null;
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal dbData) {
+        return dbData != null ? Money.of(dbData, Money.DEFAULT_CURRENCY) : null;
+    }
+}
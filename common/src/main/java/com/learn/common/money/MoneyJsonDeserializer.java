@@ -0,0 +1,28 @@
+package com.learn.common.money;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Reads {@link Money} from a JSON number or numeric string in
+ * {@link Money#DEFAULT_CURRENCY}, parsing the text directly into minor units.
+ */
+public class MoneyJsonDeserializer extends StdDeserializer<Money> {
+
+    public MoneyJsonDeserializer() {
+        super(Money.class);
+    }
+
+    @Override
+    public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        String text = p.getText().trim();
+        try {
+            return Money.parse(text, Money.DEFAULT_CURRENCY);
+        } catch (NumberFormatException | ArithmeticException e) {
+            return (Money) ctxt.handleWeirdStringValue(Money.class, text, "not a valid money amount: %s", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.learn.common.stock;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.common.dto.StockLevelEvent;
+
+/**
+ * Local, continuously updated copy of the stock-levels topic, so stock reads
+ * become in-memory lookups instead of calls to the inventory service.
+ *
+ * The view reads every partition of the log-compacted topic directly (no
+ * consumer group). It periodically writes a snapshot of the map together with
+ * the offsets it reflects, so after a restart only the tail of the topic has
+ * to be replayed. Partitions added to the topic later are picked up while
+ * running.
+ *
+ * Each product keeps the level with the highest {@code stockVersion}, a
+ * counter the inventory database increments with every stock write, so a
+ * stale level that reached the log after a newer one (e.g. from another
+ * inventory replica) does not overwrite it. Compaction keeps the last record
+ * per product, though, so a view replaying the topic from scratch may start
+ * from such a stale level until the product's stock changes again.
+ *
+ * <pre>
+ * StockLevelView view = new StockLevelView("localhost:9192", "stock-levels",
+ *         Path.of("data/stock-levels.snapshot"), Duration.ofSeconds(30));
+ * view.start();
+ * view.awaitCaughtUp(Duration.ofSeconds(10));
+ * OptionalInt stock = view.getStock(productId);
+ * </pre>
+ */
+public class StockLevelView implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLevelView.class);
+    // "STK3": stock version per product. "STK2" snapshots held timestamps instead and are replayed from scratch
+    private static final int SNAPSHOT_MAGIC = 0x53544B33;
+    private static final Duration PARTITION_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+    private final String bootstrapServers;
+    private final String topic;
+    private final Path snapshotFile;
+    private final Duration snapshotInterval;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Map<Long, Level> stock = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> offsets = new HashMap<>();
+    private final CountDownLatch caughtUp = new CountDownLatch(1);
+
+    private Consumer<String, byte[]> consumer;
+    private Thread poller;
+    private volatile boolean running;
+
+    public StockLevelView(String bootstrapServers, String topic, Path snapshotFile, Duration snapshotInterval) {
+        this.bootstrapServers = bootstrapServers;
+        this.topic = topic;
+        this.snapshotFile = snapshotFile;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public void start() {
+        loadSnapshot();
+
+        Properties config = new Properties();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumer = createConsumer(config);
+
+        running = true;
+        poller = new Thread(this::run, "stock-level-view-" + topic);
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    // Overridden in tests
+    Consumer<String, byte[]> createConsumer(Properties config) {
+        return new KafkaConsumer<>(config);
+    }
+
+    public OptionalInt getStock(long productId) {
+        Level level = stock.get(productId);
+        return level != null ? OptionalInt.of(level.quantity()) : OptionalInt.empty();
+    }
+
+    public boolean isAvailable(long productId, int quantity) {
+        return getStock(productId).orElse(0) >= quantity;
+    }
+
+    public Map<Long, Integer> asMap() {
+        return stock.entrySet().stream().collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> entry.getValue().quantity()));
+    }
+
+    /** Blocks until the view has read up to the end offsets seen at start-up. */
+    public boolean awaitCaughtUp(Duration timeout) throws InterruptedException {
+        return caughtUp.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        if (poller != null) {
+            try {
+                poller.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(assignNewPartitions());
+
+            long nextSnapshot = System.currentTimeMillis() + snapshotInterval.toMillis();
+            long nextPartitionRefresh = System.currentTimeMillis() + PARTITION_REFRESH_INTERVAL.toMillis();
+            while (running) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(500));
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    apply(record);
+                    offsets.put(record.partition(), record.offset() + 1);
+                }
+                if (caughtUp.getCount() > 0 && endOffsets.entrySet().stream()
+                        .allMatch(end -> consumer.position(end.getKey()) >= end.getValue())) {
+                    log.info("Stock level view caught up with {} products", stock.size());
+                    caughtUp.countDown();
+                }
+                if (System.currentTimeMillis() >= nextPartitionRefresh) {
+                    assignNewPartitions();
+                    nextPartitionRefresh = System.currentTimeMillis() + PARTITION_REFRESH_INTERVAL.toMillis();
+                }
+                if (System.currentTimeMillis() >= nextSnapshot) {
+                    writeSnapshot();
+                    nextSnapshot = System.currentTimeMillis() + snapshotInterval.toMillis();
+                }
+            }
+        } catch (WakeupException e) {
+            // Shutting down
+        } catch (RuntimeException e) {
+            log.error("Stock level view stopped consuming {}", topic, e);
+        } finally {
+            writeSnapshot();
+            consumer.close();
+        }
+    }
+
+    // Adds partitions the topic gained since the last check (all of them on the first call); returns the added ones
+    private List<TopicPartition> assignNewPartitions() {
+        List<PartitionInfo> infos = consumer.partitionsFor(topic);
+        Set<TopicPartition> assigned = consumer.assignment();
+        List<TopicPartition> added = (infos != null ? infos : List.<PartitionInfo>of()).stream()
+                .map(info -> new TopicPartition(topic, info.partition()))
+                .filter(partition -> !assigned.contains(partition))
+                .collect(Collectors.toList());
+        if (added.isEmpty()) {
+            return added;
+        }
+        List<TopicPartition> partitions = new ArrayList<>(assigned);
+        partitions.addAll(added);
+        consumer.assign(partitions);
+        for (TopicPartition partition : added) {
+            Long offset = offsets.get(partition.partition());
+            if (offset != null) {
+                consumer.seek(partition, offset);
+            } else {
+                consumer.seekToBeginning(List.of(partition));
+            }
+        }
+        log.info("Stock level view reading partitions {} of {}", added, topic);
+        return added;
+    }
+
+    private void apply(ConsumerRecord<String, byte[]> record) {
+        try {
+            long productId = Long.parseLong(record.key());
+            if (record.value() == null) {
+                stock.remove(productId);
+                return;
+            }
+            StockLevelEvent event = objectMapper.readValue(record.value(), StockLevelEvent.class);
+            // Levels published before versions existed lose against any versioned one
+            Level incoming = new Level(event.getStockQuantity(), event.getStockVersion() != null ? event.getStockVersion() : -1L);
+            stock.merge(productId, incoming, (current, next) -> next.version() >= current.version() ? next : current);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Skipping unreadable stock level record at offset {}", record.offset(), e);
+        }
+    }
+
+    private void loadSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshotFile))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                log.warn("Ignoring stock level snapshot with unknown format: {}", snapshotFile);
+                return;
+            }
+            int partitions = in.readInt();
+            for (int i = 0; i < partitions; i++) {
+                offsets.put(in.readInt(), in.readLong());
+            }
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                stock.put(in.readLong(), new Level(in.readInt(), in.readLong()));
+            }
+            log.info("Loaded stock level snapshot with {} products from {}", entries, snapshotFile);
+        } catch (NoSuchFileException e) {
+            // First start, replay the whole topic
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable stock level snapshot {}", snapshotFile, e);
+            offsets.clear();
+            stock.clear();
+        }
+    }
+
+    // Runs on the poll thread only, so the offsets always match the map contents
+    private void writeSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            Path parent = snapshotFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            Map<Long, Level> copy = Map.copyOf(stock);
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(offsets.size());
+                for (Map.Entry<Integer, Long> offset : offsets.entrySet()) {
+                    out.writeInt(offset.getKey());
+                    out.writeLong(offset.getValue());
+                }
+                out.writeInt(copy.size());
+                for (Map.Entry<Long, Level> entry : copy.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeInt(entry.getValue().quantity());
+                    out.writeLong(entry.getValue().version());
+                }
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write stock level snapshot {}", snapshotFile, e);
+        }
+    }
+
+    private record Level(int quantity, long version) {
+    }
+}
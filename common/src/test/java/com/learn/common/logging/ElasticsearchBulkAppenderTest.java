@@ -0,0 +1,274 @@
+package com.learn.common.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+/**
+ * Runs the appender against a JDK {@link HttpServer} standing in for the
+ * Elasticsearch {@code _bulk} endpoint.
+ */
+class ElasticsearchBulkAppenderTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final Pattern MESSAGE = Pattern.compile("\"message\":\"([^\"]*)\"");
+
+    // The SLF4J-bound context comes with the MDC adapter that events read from
+    private final LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+    private final List<BulkRequest> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final List<ElasticsearchBulkAppender> appenders = new ArrayList<>();
+    private HttpServer server;
+
+    @TempDir
+    Path spool;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/_bulk", this::handleBulk);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        appenders.forEach(ElasticsearchBulkAppender::stop);
+        server.stop(0);
+    }
+
+    @Test
+    void shipsFullBatchesByCount() {
+        ElasticsearchBulkAppender appender = appender("count", 3, 1000);
+
+        log(appender, 0, 6);
+
+        await(() -> appender.getShippedEvents() == 6);
+        assertEquals(2, requests.size());
+        assertEquals(List.of("event 0", "event 1", "event 2"), requests.get(0).messages());
+        assertEquals(List.of("event 3", "event 4", "event 5"), requests.get(1).messages());
+    }
+
+    @Test
+    void shipsPartialBatchWhenFlushIntervalElapses() {
+        ElasticsearchBulkAppender appender = appender("interval", 100, 200);
+
+        log(appender, 0, 2);
+
+        await(() -> requests.size() == 1);
+        assertEquals(List.of("event 0", "event 1"), requests.get(0).messages());
+    }
+
+    @Test
+    void postsGzipCompressedNdjsonIntoLogstashIndices() {
+        ElasticsearchBulkAppender appender = appender("gzip", 1, 100);
+
+        log(appender, 0, 1);
+
+        await(() -> requests.size() == 1);
+        BulkRequest request = requests.get(0);
+        assertEquals("gzip", request.contentEncoding());
+        assertEquals("application/x-ndjson", request.contentType());
+        String[] lines = request.body().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"index\":{\"_index\":\"microservices-test-logs-"), lines[0]);
+        assertTrue(lines[1].contains("\"service\":{\"name\":\"order-service\"}"), lines[1]);
+    }
+
+    @Test
+    void sendsPlainNdjsonWhenCompressionIsOff() {
+        ElasticsearchBulkAppender appender = newAppender("plain", 1, 100);
+        appender.setCompress(false);
+        start(appender);
+
+        log(appender, 0, 1);
+
+        await(() -> requests.size() == 1);
+        assertEquals(null, requests.get(0).contentEncoding());
+        assertEquals(List.of("event 0"), requests.get(0).messages());
+    }
+
+    @Test
+    void spoolsFailedBatchesAndReplaysThemOldestFirst() throws IOException {
+        status.set(503);
+        ElasticsearchBulkAppender appender = newAppender("retry", 2, 100);
+        appender.setSpoolDirectory(spool.toString());
+        appender.setRetryBackoffMillis(300);
+        start(appender);
+
+        log(appender, 0, 6);
+        await(() -> appender.getSpilledEvents() == 6);
+        assertTrue(appender.getFailedRequests() >= 1);
+        assertTrue(spoolFileCount() >= 1);
+
+        status.set(200);
+        await(() -> appender.getReplayedEvents() == 6);
+        assertEquals(List.of("event 0", "event 1", "event 2", "event 3", "event 4", "event 5"), deliveredMessages());
+        assertEquals(0, spoolFileCount());
+        assertEquals(0, appender.getSpoolBytes());
+    }
+
+    @Test
+    void replaysSpoolLeftByPreviousRunBeforeNewerBatches() throws IOException {
+        status.set(503);
+        ElasticsearchBulkAppender previousRun = newAppender("previous", 100, 100);
+        previousRun.setSpoolDirectory(spool.toString());
+        start(previousRun);
+        log(previousRun, 0, 2);
+        await(() -> previousRun.getSpilledEvents() == 2);
+        previousRun.stop();
+
+        ElasticsearchBulkAppender restarted = newAppender("restarted", 100, 100);
+        restarted.setSpoolDirectory(spool.toString());
+        restarted.setRetryBackoffMillis(300);
+        start(restarted);
+        assertTrue(restarted.getSpoolBytes() > 0);
+        log(restarted, 2, 2);
+        await(() -> restarted.getSpilledEvents() == 2);
+
+        status.set(200);
+        await(() -> restarted.getReplayedEvents() == 4);
+        assertEquals(List.of("event 0", "event 1", "event 2", "event 3"), deliveredMessages());
+        assertEquals(0, spoolFileCount());
+    }
+
+    @Test
+    void replaysSpoolBeforeNewBatchesWhileLoggingContinues() throws IOException, InterruptedException {
+        status.set(503);
+        ElasticsearchBulkAppender appender = newAppender("steady", 2, 50);
+        appender.setSpoolDirectory(spool.toString());
+        appender.setRetryBackoffMillis(300);
+        start(appender);
+        log(appender, 0, 6);
+        await(() -> appender.getSpilledEvents() == 6);
+
+        status.set(200);
+        // Logs faster than the flush interval, so the worker never polls the queue empty
+        int logged = 6;
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (appender.getSpoolBytes() > 0 && System.nanoTime() < deadline) {
+            log(appender, logged++, 1);
+            Thread.sleep(10);
+        }
+        int total = logged;
+
+        await(() -> deliveredMessages().size() == total);
+        assertEquals(IntStream.range(0, total).mapToObj(i -> "event " + i).toList(), deliveredMessages());
+        assertTrue(appender.getReplayedEvents() >= 6);
+        assertEquals(0, spoolFileCount());
+    }
+
+    private ElasticsearchBulkAppender appender(String name, int batchSize, long flushIntervalMillis) {
+        return start(newAppender(name, batchSize, flushIntervalMillis));
+    }
+
+    private ElasticsearchBulkAppender newAppender(String name, int batchSize, long flushIntervalMillis) {
+        ElasticsearchBulkAppender appender = new ElasticsearchBulkAppender();
+        appender.setContext(loggerContext);
+        appender.setName(name + "-" + System.nanoTime());
+        appender.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        appender.setServiceName("order-service");
+        appender.setEnvironment("test");
+        appender.setBatchSize(batchSize);
+        appender.setFlushIntervalMillis(flushIntervalMillis);
+        appender.setRequestTimeoutMillis(2000);
+        return appender;
+    }
+
+    private ElasticsearchBulkAppender start(ElasticsearchBulkAppender appender) {
+        appender.start();
+        appenders.add(appender);
+        return appender;
+    }
+
+    private void log(ElasticsearchBulkAppender appender, int first, int count) {
+        for (int i = first; i < first + count; i++) {
+            appender.doAppend(new LoggingEvent(ElasticsearchBulkAppenderTest.class.getName(),
+                    loggerContext.getLogger("test"), Level.INFO, "event {}", null, new Object[] { i }));
+        }
+    }
+
+    private List<String> deliveredMessages() {
+        return requests.stream()
+                .filter(request -> request.status() == 200)
+                .flatMap(request -> request.messages().stream())
+                .toList();
+    }
+
+    private long spoolFileCount() throws IOException {
+        try (Stream<Path> files = Files.list(spool)) {
+            return files.count();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within " + TIMEOUT);
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted while waiting");
+            }
+        }
+    }
+
+    private void handleBulk(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        byte[] body = "gzip".equals(encoding) ? new GZIPInputStream(new ByteArrayInputStream(raw)).readAllBytes() : raw;
+        int code = status.get();
+        requests.add(new BulkRequest(code, encoding, exchange.getRequestHeaders().getFirst("Content-Type"),
+                new String(body, StandardCharsets.UTF_8)));
+
+        byte[] response = "{\"took\":1,\"errors\":false,\"items\":[]}".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, response.length);
+        exchange.getResponseBody().write(response);
+        exchange.close();
+    }
+
+    private record BulkRequest(int status, String contentEncoding, String contentType, String body) {
+
+        List<String> messages() {
+            List<String> messages = new ArrayList<>();
+            Matcher matcher = MESSAGE.matcher(body);
+            while (matcher.find()) {
+                messages.add(matcher.group(1));
+            }
+            return messages;
+        }
+    }
+}
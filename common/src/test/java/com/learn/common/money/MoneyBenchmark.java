@@ -0,0 +1,84 @@
+package com.learn.common.money;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Order-total arithmetic and decimal formatting with {@link Money} versus
+ * {@link BigDecimal}, mirroring OrderServiceImpl.createOrder. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec}; the gc profiler reports
+ * allocation per operation (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int items;
+
+    private int[] quantities;
+
+    private static final Money UNIT_PRICE = Money.ofMinor(1000);
+
+    @Setup
+    public void setUp() {
+        quantities = new int[items];
+        for (int i = 0; i < items; i++) {
+            quantities[i] = 1 + i % 7;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int quantity : quantities) {
+            total = total.add(BigDecimal.valueOf(10.00).multiply(BigDecimal.valueOf(quantity)));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money moneyTotal() {
+        Money total = Money.zero(Money.DEFAULT_CURRENCY);
+        for (int quantity : quantities) {
+            total = total.plus(UNIT_PRICE.times(quantity));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public String bigDecimalFormat() {
+        return BigDecimal.valueOf(10.00).multiply(BigDecimal.valueOf(items)).setScale(2).toPlainString();
+    }
+
+    @Benchmark
+    public String moneyFormat() {
+        return UNIT_PRICE.times(items).toPlainString();
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalParse() {
+        return new BigDecimal("1234.56");
+    }
+
+    @Benchmark
+    public Money moneyParse() {
+        return Money.parse("1234.56", Money.DEFAULT_CURRENCY);
+    }
+}
@@ -0,0 +1,116 @@
+package com.learn.common.money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MoneyConverter converter = new MoneyConverter();
+
+    @Test
+    void parsesAndFormatsAmountsBetweenZeroAndMinusOne() {
+        for (String text : List.of("-0.05", "-0.5", "-0.99", "-0.01")) {
+            Money money = Money.parse(text, Money.DEFAULT_CURRENCY);
+            assertEquals(new BigDecimal(text).movePointRight(2).longValueExact(), money.getMinorUnits(), text);
+            assertEquals(new BigDecimal(text).setScale(2).toPlainString(), money.toPlainString(), text);
+        }
+        assertEquals("-0.05", Money.ofMinor(-5).toPlainString());
+        assertEquals("-1.05", Money.ofMinor(-105).toPlainString());
+        assertEquals("0.00", Money.ofMinor(0).toPlainString());
+    }
+
+    @Test
+    void parsesPlainDecimals() {
+        assertEquals(1999, Money.parse("19.99", Money.DEFAULT_CURRENCY).getMinorUnits());
+        assertEquals(1990, Money.parse("19.9", Money.DEFAULT_CURRENCY).getMinorUnits());
+        assertEquals(-300, Money.parse("-3", Money.DEFAULT_CURRENCY).getMinorUnits());
+        assertEquals(300, Money.parse("+3.", Money.DEFAULT_CURRENCY).getMinorUnits());
+        assertEquals(10000, Money.parse("1e2", Money.DEFAULT_CURRENCY).getMinorUnits());
+        assertEquals(1230, Money.parse("12.300", Money.DEFAULT_CURRENCY).getMinorUnits());
+        assertEquals(5, Money.parse("0.05", Currency.getInstance("USD")).getMinorUnits());
+        assertEquals(5, Money.parse("5", Currency.getInstance("JPY")).getMinorUnits());
+    }
+
+    @Test
+    void rejectsMoreThanTwoDecimals() {
+        assertThrows(ArithmeticException.class, () -> Money.parse("19.999", Money.DEFAULT_CURRENCY));
+        assertThrows(ArithmeticException.class, () -> Money.parse("-0.001", Money.DEFAULT_CURRENCY));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.125"), Money.DEFAULT_CURRENCY));
+    }
+
+    @Test
+    void rejectsText() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("", Money.DEFAULT_CURRENCY));
+        assertThrows(NumberFormatException.class, () -> Money.parse("-", Money.DEFAULT_CURRENCY));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.2.3", Money.DEFAULT_CURRENCY));
+        assertThrows(NumberFormatException.class, () -> Money.parse("abc", Money.DEFAULT_CURRENCY));
+    }
+
+    @Test
+    void throwsOnOverflowInsteadOfWrapping() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).minus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> max.times(2));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).times(-1));
+        assertThrows(ArithmeticException.class, () -> Money.parse("92233720368547758.08", Money.DEFAULT_CURRENCY));
+        assertEquals(Long.MAX_VALUE, Money.ofMinor(Long.MAX_VALUE - 1).plus(Money.ofMinor(1)).getMinorUnits());
+    }
+
+    @Test
+    void rejectsMixedCurrencies() {
+        Money euros = Money.ofMinor(100, Currency.getInstance("EUR"));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofMinor(100).plus(euros));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofMinor(100).compareTo(euros));
+    }
+
+    @Test
+    void serializesLikeBigDecimal() throws Exception {
+        for (String amount : List.of("19.99", "20.00", "0.00", "-0.05", "-12.30", "99999999.99")) {
+            Money money = Money.of(new BigDecimal(amount), Money.DEFAULT_CURRENCY);
+            assertEquals(objectMapper.writeValueAsString(new BigDecimal(amount)), objectMapper.writeValueAsString(money));
+        }
+    }
+
+    @Test
+    void deserializesBigDecimalWireFormat() throws Exception {
+        for (String amount : List.of("19.99", "20.00", "20", "19.9", "-0.05", "0")) {
+            String json = objectMapper.writeValueAsString(new BigDecimal(amount));
+            Money money = objectMapper.readValue(json, Money.class);
+            assertEquals(Money.of(new BigDecimal(amount), Money.DEFAULT_CURRENCY), money, json);
+            assertEquals(money, objectMapper.readValue(objectMapper.writeValueAsString(money), Money.class), json);
+        }
+        assertEquals(Money.ofMinor(1999), objectMapper.readValue("\"19.99\"", Money.class));
+        assertEquals(Money.ofMinor(1999), objectMapper.readValue(" 19.99 ", Money.class));
+    }
+
+    @Test
+    void rejectsInvalidJsonAmounts() {
+        assertThrows(JsonMappingException.class, () -> objectMapper.readValue("19.999", Money.class));
+        assertThrows(JsonMappingException.class, () -> objectMapper.readValue("\"abc\"", Money.class));
+    }
+
+    @Test
+    void convertsToAndFromDecimalColumn() {
+        for (String amount : List.of("19.99", "0.00", "-0.05", "99999999.99")) {
+            BigDecimal column = new BigDecimal(amount);
+            Money money = converter.convertToEntityAttribute(column);
+            assertEquals(column, converter.convertToDatabaseColumn(money));
+        }
+        assertEquals(Money.ofMinor(1990), converter.convertToEntityAttribute(new BigDecimal("19.9")));
+        assertThrows(ArithmeticException.class, () -> converter.convertToEntityAttribute(new BigDecimal("19.999")));
+        assertNull(converter.convertToEntityAttribute(null));
+        assertNull(converter.convertToDatabaseColumn(null));
+    }
+}
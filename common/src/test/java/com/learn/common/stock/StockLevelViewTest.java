@@ -0,0 +1,210 @@
+package com.learn.common.stock;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Properties;
+import java.util.function.BooleanSupplier;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.common.dto.StockLevelEvent;
+
+/**
+ * Runs the view against a {@link MockConsumer} standing in for one partition
+ * of the stock-levels topic.
+ */
+class StockLevelViewTest {
+
+    private static final String TOPIC = "stock-levels";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<StockLevelView> views = new ArrayList<>();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void close() {
+        views.forEach(StockLevelView::close);
+    }
+
+    @Test
+    void keepsTheLevelWithTheHighestVersion() throws Exception {
+        StockLevelView view = start(consumer(
+                level(1, 5, 2), level(1, 9, 1), level(2, 1, 5), level(2, 7, 4), level(1, 4, 3), unversioned(2, 3)), null);
+
+        assertTrue(view.awaitCaughtUp(TIMEOUT));
+        assertEquals(OptionalInt.of(4), view.getStock(1));
+        assertEquals(OptionalInt.of(1), view.getStock(2));
+    }
+
+    @Test
+    void appliesLevelsArrivingAfterCatchUpByVersion() throws Exception {
+        MockConsumer<String, byte[]> consumer = consumer(level(1, 5, 2));
+        StockLevelView view = start(consumer, null);
+        assertTrue(view.awaitCaughtUp(TIMEOUT));
+
+        // A replica that read an older level published it last
+        append(consumer, 1, level(1, 3, 4));
+        append(consumer, 2, level(1, 8, 3));
+        append(consumer, 3, level(2, 6, 1));
+
+        await(() -> view.getStock(2).isPresent());
+        assertEquals(OptionalInt.of(3), view.getStock(1));
+    }
+
+    @Test
+    void removesDeletedProducts() throws Exception {
+        StockLevelView view = start(consumer(level(1, 5, 1), level(2, 6, 1), tombstone(1)), null);
+
+        assertTrue(view.awaitCaughtUp(TIMEOUT));
+        assertEquals(OptionalInt.empty(), view.getStock(1));
+        assertEquals(Map.of(2L, 6), view.asMap());
+    }
+
+    @Test
+    void writesOffsetsAndVersionedLevelsToSnapshot() throws Exception {
+        Path snapshot = dir.resolve("stock-levels.snapshot");
+        StockLevelView view = start(consumer(level(1, 5, 1), level(2, 8, 1), level(1, 4, 2)), snapshot);
+        assertTrue(view.awaitCaughtUp(TIMEOUT));
+        view.close();
+
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshot))) {
+            assertEquals(0x53544B33, in.readInt());
+            assertEquals(1, in.readInt());
+            assertEquals(0, in.readInt());
+            assertEquals(3L, in.readLong());
+            assertEquals(2, in.readInt());
+            Map<Long, long[]> levels = new HashMap<>();
+            for (int i = 0; i < 2; i++) {
+                levels.put(in.readLong(), new long[] { in.readInt(), in.readLong() });
+            }
+            assertArrayEquals(new long[] { 4, 2 }, levels.get(1L));
+            assertArrayEquals(new long[] { 8, 1 }, levels.get(2L));
+        }
+    }
+
+    @Test
+    void restartsFromSnapshotAndReplaysOnlyTheTail() throws Exception {
+        Path snapshot = dir.resolve("stock-levels.snapshot");
+        StockLevelView first = start(consumer(level(1, 5, 1), level(2, 8, 1), level(1, 4, 2)), snapshot);
+        assertTrue(first.awaitCaughtUp(TIMEOUT));
+        first.close();
+
+        // Records before the snapshot's offset would win if they were replayed
+        StockLevelView restarted = start(consumer(
+                level(1, 99, 9), level(2, 99, 9), level(1, 99, 9), level(2, 7, 2), level(3, 1, 1)), snapshot);
+        assertEquals(OptionalInt.of(4), restarted.getStock(1));
+
+        assertTrue(restarted.awaitCaughtUp(TIMEOUT));
+        assertEquals(Map.of(1L, 4, 2L, 7, 3L, 1), restarted.asMap());
+    }
+
+    @Test
+    void replaysFromScratchOverTimestampSnapshot() throws Exception {
+        Path snapshot = dir.resolve("stock-levels.snapshot");
+        // "STK2": levels stamped with epoch millis, which would outrank every version
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(snapshot))) {
+            out.writeInt(0x53544B32);
+            out.writeInt(1);
+            out.writeInt(0);
+            out.writeLong(2L);
+            out.writeInt(1);
+            out.writeLong(1L);
+            out.writeInt(50);
+            out.writeLong(1_700_000_000_000L);
+        }
+
+        StockLevelView view = start(consumer(level(1, 5, 1), level(1, 4, 2)), snapshot);
+
+        assertTrue(view.awaitCaughtUp(TIMEOUT));
+        assertEquals(OptionalInt.of(4), view.getStock(1));
+    }
+
+    private StockLevelView start(MockConsumer<String, byte[]> consumer, Path snapshot) {
+        StockLevelView view = new StockLevelView("localhost:9092", TOPIC, snapshot, Duration.ofHours(1)) {
+            @Override
+            Consumer<String, byte[]> createConsumer(Properties config) {
+                return consumer;
+            }
+        };
+        view.start();
+        views.add(view);
+        return view;
+    }
+
+    // One partition holding the records at offsets 0..n-1, delivered by the first poll
+    private static MockConsumer<String, byte[]> consumer(Record... records) {
+        MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, new Node[0], new Node[0])));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION, (long) records.length));
+        consumer.schedulePollTask(() -> {
+            for (int offset = 0; offset < records.length; offset++) {
+                consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, records[offset].key(), records[offset].value()));
+            }
+        });
+        return consumer;
+    }
+
+    private static void append(MockConsumer<String, byte[]> consumer, long offset, Record record) {
+        consumer.schedulePollTask(() -> consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, record.key(), record.value())));
+    }
+
+    private Record level(long productId, int quantity, long stockVersion) throws JsonProcessingException {
+        return new Record(Long.toString(productId),
+                objectMapper.writeValueAsBytes(new StockLevelEvent(productId, quantity, stockVersion)));
+    }
+
+    private Record unversioned(long productId, int quantity) throws JsonProcessingException {
+        return new Record(Long.toString(productId), objectMapper.writeValueAsBytes(new StockLevelEvent(productId, quantity, null)));
+    }
+
+    private static Record tombstone(long productId) {
+        return new Record(Long.toString(productId), null);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within " + TIMEOUT);
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted while waiting");
+            }
+        }
+    }
+
+    private record Record(String key, byte[] value) {
+    }
+}
@@ -0,0 +1,167 @@
+package com.learn.gateway.composite;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Composite order details: the order plus the product behind every order item
+ * in one response, instead of one product request per item from the browser.
+ *
+ * Product ids are deduplicated and fetched through the inventory multi-get in
+ * batches that run concurrently. A product batch that fails or times out does
+ * not fail the response; its items carry {@code "product": null} and the ids
+ * are listed under {@code unavailableProductIds} with {@code "partial": true}.
+ * Failing or slow order lookups map to 502 and 504.
+ */
+@RestController
+public class OrderDetailsController {
+
+	private static final Logger log = LoggerFactory.getLogger(OrderDetailsController.class);
+
+	private final WebClient orderClient;
+	private final WebClient inventoryClient;
+	private final Duration orderTimeout;
+	private final Duration productTimeout;
+	private final int productBatchSize;
+	private final int productConcurrency;
+
+	public OrderDetailsController(WebClient.Builder webClientBuilder,
+			@Value("${composite.order-service-uri}") String orderServiceUri,
+			@Value("${composite.inventory-service-uri}") String inventoryServiceUri,
+			@Value("${composite.order-timeout-ms:2000}") long orderTimeoutMs,
+			@Value("${composite.product-timeout-ms:1000}") long productTimeoutMs,
+			@Value("${composite.product-batch-size:100}") int productBatchSize,
+			@Value("${composite.product-concurrency:4}") int productConcurrency) {
+		this.orderClient = webClientBuilder.clone().baseUrl(orderServiceUri).build();
+		this.inventoryClient = webClientBuilder.clone().baseUrl(inventoryServiceUri).build();
+		this.orderTimeout = Duration.ofMillis(orderTimeoutMs);
+		this.productTimeout = Duration.ofMillis(productTimeoutMs);
+		this.productBatchSize = productBatchSize;
+		this.productConcurrency = productConcurrency;
+	}
+
+	@GetMapping("/api/order-details/{id}")
+	public Mono<ResponseEntity<JsonNode>> getOrderDetails(@PathVariable Long id) {
+		return orderClient.get()
+				.uri("/api/orders/{id}", id)
+				.retrieve()
+				.bodyToMono(ObjectNode.class)
+				.timeout(orderTimeout)
+				.flatMap(order -> fetchProducts(productIds(order))
+						.map(lookup -> ResponseEntity.ok((JsonNode) merge(order, lookup))))
+				.onErrorResume(WebClientResponseException.NotFound.class,
+						e -> Mono.just(ResponseEntity.notFound().build()))
+				.onErrorResume(TimeoutException.class, e -> {
+					log.warn("Timed out fetching order {} after {}", id, orderTimeout);
+					return Mono.just(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build());
+				})
+				.onErrorResume(e -> {
+					log.error("Failed to fetch order {}: {}", id, e.getMessage());
+					return Mono.just(ResponseEntity.status(HttpStatus.BAD_GATEWAY).build());
+				});
+	}
+
+	private Set<Long> productIds(ObjectNode order) {
+		Set<Long> ids = new LinkedHashSet<>();
+		for (JsonNode item : order.path("orderItems")) {
+			if (item.hasNonNull("productId")) {
+				ids.add(item.get("productId").asLong());
+			}
+		}
+		return ids;
+	}
+
+	private Mono<ProductLookup> fetchProducts(Set<Long> ids) {
+		if (ids.isEmpty()) {
+			return Mono.just(new ProductLookup(Map.of(), Set.of()));
+		}
+		List<List<Long>> batches = new ArrayList<>();
+		List<Long> all = new ArrayList<>(ids);
+		for (int i = 0; i < all.size(); i += productBatchSize) {
+			batches.add(all.subList(i, Math.min(i + productBatchSize, all.size())));
+		}
+		return Flux.fromIterable(batches)
+				.flatMap(this::fetchProductBatch, productConcurrency)
+				.collectList()
+				.map(results -> {
+					Map<Long, JsonNode> products = new HashMap<>();
+					Set<Long> unavailable = new TreeSet<>();
+					for (ProductBatch batch : results) {
+						products.putAll(batch.products());
+						if (batch.failed()) {
+							unavailable.addAll(batch.ids());
+						}
+					}
+					return new ProductLookup(products, unavailable);
+				});
+	}
+
+	// Ids the inventory does not know are simply absent; only failed batches make the response partial
+	private Mono<ProductBatch> fetchProductBatch(List<Long> ids) {
+		String joined = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+		return inventoryClient.get()
+				.uri(uri -> uri.path("/api/products").queryParam("ids", joined).build())
+				.retrieve()
+				.bodyToFlux(ObjectNode.class)
+				.collectMap(product -> product.path("id").asLong(), product -> (JsonNode) product)
+				.timeout(productTimeout)
+				.map(products -> new ProductBatch(ids, products, false))
+				.onErrorResume(e -> {
+					log.warn("Product batch of {} ids failed: {}", ids.size(), e.toString());
+					return Mono.just(new ProductBatch(ids, Map.of(), true));
+				});
+	}
+
+	private ObjectNode merge(ObjectNode order, ProductLookup lookup) {
+		for (JsonNode item : order.path("orderItems")) {
+			if (item instanceof ObjectNode orderItem) {
+				JsonNode product = lookup.products().get(orderItem.path("productId").asLong());
+				if (product != null) {
+					orderItem.set("product", product);
+				} else {
+					orderItem.putNull("product");
+				}
+			}
+		}
+		order.put("partial", !lookup.unavailable().isEmpty());
+		if (!lookup.unavailable().isEmpty()) {
+			ArrayNode unavailable = order.putArray("unavailableProductIds");
+			for (Long productId : lookup.unavailable()) {
+				unavailable.add(productId);
+			}
+		}
+		return order;
+	}
+
+	private record ProductBatch(List<Long> ids, Map<Long, JsonNode> products, boolean failed) {
+	}
+
+	private record ProductLookup(Map<Long, JsonNode> products, Set<Long> unavailable) {
+	}
+}
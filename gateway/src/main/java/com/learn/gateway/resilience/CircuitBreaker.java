@@ -0,0 +1,108 @@
+package com.learn.gateway.resilience;
+
+import java.util.Arrays;
+
+/**
+ * Count-based circuit breaker for one route. Opens when the failure rate of
+ * the last {@code slidingWindowSize} calls reaches the threshold, rejects
+ * calls while open, then lets a few trial calls through (half-open) and
+ * closes again once they all succeed.
+ */
+final class CircuitBreaker {
+
+	enum State {
+		CLOSED, HALF_OPEN, OPEN
+	}
+
+	private final int failureRateThreshold;
+	private final int minimumCalls;
+	private final long openDurationNanos;
+	private final int halfOpenCalls;
+	private final boolean[] window;
+
+	private State state = State.CLOSED;
+	private int windowIndex;
+	private int windowCount;
+	private int windowFailures;
+	private long openedAt;
+	private int halfOpenPermits;
+	private int halfOpenSuccesses;
+
+	CircuitBreaker(int failureRateThreshold, int slidingWindowSize, int minimumCalls, long openDurationMs,
+			int halfOpenCalls) {
+		this.failureRateThreshold = failureRateThreshold;
+		this.minimumCalls = minimumCalls;
+		this.openDurationNanos = openDurationMs * 1_000_000L;
+		this.halfOpenCalls = halfOpenCalls;
+		this.window = new boolean[slidingWindowSize];
+	}
+
+	synchronized boolean tryAcquire(long now) {
+		if (state == State.OPEN && now - openedAt >= openDurationNanos) {
+			state = State.HALF_OPEN;
+			halfOpenPermits = halfOpenCalls;
+			halfOpenSuccesses = 0;
+		}
+		return switch (state) {
+			case CLOSED -> true;
+			case OPEN -> false;
+			case HALF_OPEN -> {
+				if (halfOpenPermits == 0) {
+					yield false;
+				}
+				halfOpenPermits--;
+				yield true;
+			}
+		};
+	}
+
+	synchronized void onResult(boolean failure, long now) {
+		if (state == State.HALF_OPEN) {
+			if (failure) {
+				open(now);
+			} else if (++halfOpenSuccesses >= halfOpenCalls) {
+				close();
+			}
+			return;
+		}
+		if (state == State.OPEN) {
+			return;
+		}
+		if (windowCount == window.length && window[windowIndex]) {
+			windowFailures--;
+		}
+		window[windowIndex] = failure;
+		if (failure) {
+			windowFailures++;
+		}
+		windowIndex = (windowIndex + 1) % window.length;
+		windowCount = Math.min(windowCount + 1, window.length);
+		if (windowCount >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+			open(now);
+		}
+	}
+
+	// A cancelled trial call neither proves nor disproves recovery, so its permit is returned
+	synchronized void onCancel() {
+		if (state == State.HALF_OPEN) {
+			halfOpenPermits++;
+		}
+	}
+
+	synchronized State state() {
+		return state;
+	}
+
+	private void open(long now) {
+		state = State.OPEN;
+		openedAt = now;
+	}
+
+	private void close() {
+		state = State.CLOSED;
+		windowIndex = 0;
+		windowCount = 0;
+		windowFailures = 0;
+		Arrays.fill(window, false);
+	}
+}
@@ -0,0 +1,352 @@
+package com.learn.gateway.resilience;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setAlreadyRouted;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Hedged requests for idempotent GETs. The upstream call is made once and,
+ * if it is still outstanding after a delay derived from the route's recent
+ * p95 latency, a second identical attempt is fired; the first non-5xx
+ * response wins and the other attempt is cancelled. A first attempt that
+ * fails before the delay (a 5xx or a connection error) is answered as is,
+ * without a hedge, since hedging covers slow responses, not errors. Hedges are
+ * limited to {@code budget-percent} of the route's requests so a slow
+ * backend is not hit with double load. Other methods are routed as usual.
+ *
+ * The race is decided when an attempt's status and headers arrive; the
+ * winner's body is then streamed to the client, so responses of any size
+ * pass through. Only 5xx bodies, kept in case the other attempt fails too,
+ * are buffered (up to {@code max-response-bytes}). Each attempt's wait for
+ * its headers is bounded by the route's {@code response-timeout} metadata.
+ *
+ * Metrics (tag {@code routeId}): {@code gateway.hedge.requests},
+ * {@code gateway.hedge.fired}, {@code gateway.hedge.wins},
+ * {@code gateway.hedge.budget-exhausted} and {@code gateway.hedge.delay}.
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+	// Right after RouteToRequestUrlFilter resolved the upstream URL, before the Netty routing filter
+	private static final int HEDGE_FILTER_ORDER = RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER + 1;
+
+	private static final int MIN_SAMPLES = 20;
+
+	private final WebClient.Builder webClientBuilder;
+	private final ObjectProvider<List<HttpHeadersFilter>> headersFilters;
+	private final HttpClientProperties httpClientProperties;
+	private final MeterRegistry meterRegistry;
+
+	public HedgeGatewayFilterFactory(WebClient.Builder webClientBuilder,
+			ObjectProvider<List<HttpHeadersFilter>> headersFilters, HttpClientProperties httpClientProperties,
+			MeterRegistry meterRegistry) {
+		super(Config.class);
+		this.webClientBuilder = webClientBuilder;
+		this.headersFilters = headersFilters;
+		this.httpClientProperties = httpClientProperties;
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		RouteHedger hedger = new RouteHedger(config);
+		return new OrderedGatewayFilter((exchange, chain) -> {
+			URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+			if (exchange.getRequest().getMethod() != HttpMethod.GET || isAlreadyRouted(exchange) || url == null
+					|| !("http".equals(url.getScheme()) || "https".equals(url.getScheme()))) {
+				return chain.filter(exchange);
+			}
+			setAlreadyRouted(exchange);
+			return hedger.execute(exchange, url);
+		}, HEDGE_FILTER_ORDER);
+	}
+
+	private final class RouteHedger {
+
+		private final Config config;
+		private final WebClient webClient;
+		private final LatencyTracker latencies;
+		private final Counter requests;
+		private final Counter fired;
+		private final Counter wins;
+		private final Counter budgetExhausted;
+		private double budgetTokens;
+
+		private RouteHedger(Config config) {
+			this.config = config;
+			this.webClient = webClientBuilder.clone()
+					.codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(config.getMaxResponseBytes()))
+					.build();
+			this.latencies = new LatencyTracker(config.getLatencySamples());
+			String routeId = config.getRouteId();
+			this.requests = Counter.builder("gateway.hedge.requests").tag("routeId", routeId).register(meterRegistry);
+			this.fired = Counter.builder("gateway.hedge.fired").tag("routeId", routeId).register(meterRegistry);
+			this.wins = Counter.builder("gateway.hedge.wins").tag("routeId", routeId).register(meterRegistry);
+			this.budgetExhausted = Counter.builder("gateway.hedge.budget-exhausted").tag("routeId", routeId)
+					.register(meterRegistry);
+			Gauge.builder("gateway.hedge.delay", this, hedger -> hedger.hedgeDelay().toMillis())
+					.tag("routeId", routeId)
+					.baseUnit("milliseconds")
+					.register(meterRegistry);
+		}
+
+		private Mono<Void> execute(ServerWebExchange exchange, URI url) {
+			requests.increment();
+			HttpHeaders headers = new HttpHeaders();
+			headers.addAll(HttpHeadersFilter.filterRequest(headersFilters.getIfAvailable(), exchange));
+			headers.remove(HttpHeaders.HOST);
+			Duration timeout = responseTimeout(exchange);
+
+			// Signalled when the primary fails, so a hedge that has not fired yet is dropped
+			Sinks.One<Boolean> primaryFailed = Sinks.one();
+			Flux<Object> primary = attempt(url, headers, timeout, false)
+					.doOnError(error -> primaryFailed.tryEmitValue(true));
+			Flux<Object> hedge = Mono.delay(hedgeDelay())
+					.takeUntilOther(primaryFailed.asMono())
+					.flatMapMany(tick -> {
+						if (!tryAcquireHedge()) {
+							budgetExhausted.increment();
+							return Flux.empty();
+						}
+						fired.increment();
+						return attempt(url, headers, timeout, true);
+					});
+
+			// The first attempt to deliver its head wins; the body that follows it is written as it arrives
+			return Flux.firstWithValue(primary, hedge)
+					.onErrorMap(this::unwrap)
+					.switchOnFirst((first, winner) -> {
+						if (first.hasValue() && first.get() instanceof Head head) {
+							if (head.hedged()) {
+								wins.increment();
+							}
+							writeHead(exchange, head.status(), head.headers());
+							return exchange.getResponse().writeWith(winner.skip(1).cast(DataBuffer.class));
+						}
+						return winner.then();
+					})
+					.then()
+					.onErrorResume(UpstreamError.class, error -> write(exchange, error.entity));
+		}
+
+		// Emits the Head of a non-5xx response followed by its body buffers; a 5xx fails the attempt
+		private Flux<Object> attempt(URI url, HttpHeaders headers, Duration timeout, boolean hedged) {
+			return Flux.defer(() -> {
+				long start = System.nanoTime();
+				return webClient.get()
+						.uri(url)
+						.headers(h -> h.addAll(headers))
+						.exchangeToFlux(response -> {
+							if (response.statusCode().is5xxServerError()) {
+								return response.toEntity(byte[].class).flatMapMany(
+										entity -> Flux.error(new UpstreamError(entity)));
+							}
+							long now = System.nanoTime();
+							latencies.record(now - start, now);
+							Head head = new Head(response.statusCode(), response.headers().asHttpHeaders(), hedged);
+							return Flux.concat(Mono.just(head), response.bodyToFlux(DataBuffer.class));
+						})
+						.timeout(Mono.delay(timeout), item -> Mono.never());
+			});
+		}
+
+		private Duration hedgeDelay() {
+			return Duration.ofMillis(latencies.p95Millis(config.getMinDelayMs(), config.getMaxDelayMs(), MIN_SAMPLES));
+		}
+
+		// Token bucket: every request earns budget-percent of a hedge, capped at a small burst
+		private synchronized boolean tryAcquireHedge() {
+			budgetTokens = Math.min(config.getBudgetBurst(), budgetTokens + config.getBudgetPercent() / 100.0);
+			if (budgetTokens >= 1) {
+				budgetTokens -= 1;
+				return true;
+			}
+			return false;
+		}
+
+		private Duration responseTimeout(ServerWebExchange exchange) {
+			Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+			Object metadata = route != null ? route.getMetadata().get(RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR) : null;
+			if (metadata != null && Long.parseLong(metadata.toString().trim()) >= 0) {
+				return Duration.ofMillis(Long.parseLong(metadata.toString().trim()));
+			}
+			Duration global = httpClientProperties.getResponseTimeout();
+			return global != null ? global : Duration.ofMillis(config.getDefaultTimeoutMs());
+		}
+
+		private Throwable unwrap(Throwable error) {
+			// firstWithValue reports "no value from any source" with each attempt's failure suppressed
+			Throwable[] attempts = error.getSuppressed();
+			for (Throwable attempt : attempts) {
+				if (attempt instanceof UpstreamError) {
+					return attempt;
+				}
+			}
+			Throwable cause = attempts.length > 0 ? attempts[0] : error;
+			if (cause instanceof TimeoutException) {
+				return new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Upstream timed out", cause);
+			}
+			return new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Upstream request failed", cause);
+		}
+
+		private void writeHead(ServerWebExchange exchange, HttpStatusCode status, HttpHeaders headers) {
+			ServerHttpResponse response = exchange.getResponse();
+			response.setStatusCode(status);
+			HttpHeaders filtered = HttpHeadersFilter.filter(headersFilters.getIfAvailable(), headers,
+					exchange, HttpHeadersFilter.Type.RESPONSE);
+			response.getHeaders().putAll(filtered);
+			response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+		}
+
+		// Buffered 5xx fallback
+		private Mono<Void> write(ServerWebExchange exchange, ResponseEntity<byte[]> entity) {
+			ServerHttpResponse response = exchange.getResponse();
+			writeHead(exchange, entity.getStatusCode(), entity.getHeaders());
+			byte[] body = entity.getBody();
+			if (body == null || body.length == 0) {
+				response.getHeaders().setContentLength(0);
+				return response.setComplete();
+			}
+			response.getHeaders().setContentLength(body.length);
+			return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+		}
+	}
+
+	private record Head(HttpStatusCode status, HttpHeaders headers, boolean hedged) {
+	}
+
+	// A 5xx from one attempt; used as the response only if the other attempt fails too
+	private static final class UpstreamError extends RuntimeException {
+
+		private final transient ResponseEntity<byte[]> entity;
+
+		private UpstreamError(ResponseEntity<byte[]> entity) {
+			super("Upstream responded " + entity.getStatusCode(), null, false, false);
+			this.entity = entity;
+		}
+	}
+
+	public static class Config implements HasRouteId {
+
+		private String routeId;
+
+		// Bounds for the hedge delay; until enough latencies are sampled the maximum is used
+		private long minDelayMs = 20;
+
+		private long maxDelayMs = 500;
+
+		// Share of requests that may be hedged, and how many unused hedges may accumulate
+		private int budgetPercent = 10;
+
+		private int budgetBurst = 10;
+
+		private int latencySamples = 512;
+
+		// Limit for buffered 5xx bodies; successful responses are streamed
+		private int maxResponseBytes = 4 * 1024 * 1024;
+
+		// Per-attempt timeout when the route has no response-timeout metadata and no global one is set
+		private long defaultTimeoutMs = 5000;
+
+		@Override
+		public void setRouteId(String routeId) {
+			this.routeId = routeId;
+		}
+
+		@Override
+		public String getRouteId() {
+			return routeId;
+		}
+
+		public long getMinDelayMs() {
+			return minDelayMs;
+		}
+
+		public void setMinDelayMs(long minDelayMs) {
+			this.minDelayMs = minDelayMs;
+		}
+
+		public long getMaxDelayMs() {
+			return maxDelayMs;
+		}
+
+		public void setMaxDelayMs(long maxDelayMs) {
+			this.maxDelayMs = maxDelayMs;
+		}
+
+		public int getBudgetPercent() {
+			return budgetPercent;
+		}
+
+		public void setBudgetPercent(int budgetPercent) {
+			this.budgetPercent = budgetPercent;
+		}
+
+		public int getBudgetBurst() {
+			return budgetBurst;
+		}
+
+		public void setBudgetBurst(int budgetBurst) {
+			this.budgetBurst = budgetBurst;
+		}
+
+		public int getLatencySamples() {
+			return latencySamples;
+		}
+
+		public void setLatencySamples(int latencySamples) {
+			this.latencySamples = latencySamples;
+		}
+
+		public int getMaxResponseBytes() {
+			return maxResponseBytes;
+		}
+
+		public void setMaxResponseBytes(int maxResponseBytes) {
+			this.maxResponseBytes = maxResponseBytes;
+		}
+
+		public long getDefaultTimeoutMs() {
+			return defaultTimeoutMs;
+		}
+
+		public void setDefaultTimeoutMs(long defaultTimeoutMs) {
+			this.defaultTimeoutMs = defaultTimeoutMs;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.learn.gateway.resilience;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent upstream latencies of a route and derives the p95
+ * from them, recomputed at most every {@code RECOMPUTE_INTERVAL_NANOS}.
+ */
+final class LatencyTracker {
+
+	private static final long RECOMPUTE_INTERVAL_NANOS = 100_000_000L;
+
+	private final long[] samples;
+	private int index;
+	private int count;
+	private long computedAt;
+	private volatile long p95Nanos = -1;
+
+	LatencyTracker(int size) {
+		this.samples = new long[size];
+	}
+
+	synchronized void record(long latencyNanos, long now) {
+		samples[index] = latencyNanos;
+		index = (index + 1) % samples.length;
+		count = Math.min(count + 1, samples.length);
+		if (now - computedAt >= RECOMPUTE_INTERVAL_NANOS) {
+			long[] sorted = Arrays.copyOf(samples, count);
+			Arrays.sort(sorted);
+			p95Nanos = sorted[(int) Math.ceil(count * 0.95) - 1];
+			computedAt = now;
+		}
+	}
+
+	/** p95 in nanoseconds, or -1 until the first sample. */
+	long p95Nanos() {
+		return p95Nanos;
+	}
+
+	synchronized int sampleCount() {
+		return count;
+	}
+
+	/**
+	 * p95 in milliseconds clamped to {@code [minMillis, maxMillis]}, or
+	 * {@code maxMillis} while fewer than {@code minSamples} latencies are known.
+	 */
+	long p95Millis(long minMillis, long maxMillis, int minSamples) {
+		long p95 = p95Nanos;
+		if (p95 < 0 || sampleCount() < minSamples) {
+			return maxMillis;
+		}
+		return Math.max(minMillis, Math.min(maxMillis, p95 / 1_000_000L));
+	}
+}
@@ -0,0 +1,167 @@
+package com.learn.gateway.resilience;
+
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.SignalType;
+
+/**
+ * In-process circuit breaker per route. While the breaker is open, requests
+ * fail fast with 503 instead of queueing on a struggling backend. 5xx
+ * responses, timeouts and connection errors count as failures.
+ *
+ * <pre>
+ * routes[n].filters[m].name=LocalCircuitBreaker
+ * routes[n].filters[m].args.failure-rate-threshold=50
+ * </pre>
+ *
+ * Metrics (tag {@code routeId}): {@code gateway.circuit.state} (0 closed,
+ * 1 half-open, 2 open), {@code gateway.circuit.rejected},
+ * {@code gateway.circuit.failures} and {@code gateway.route.timeouts}.
+ */
+@Component
+public class LocalCircuitBreakerGatewayFilterFactory
+		extends AbstractGatewayFilterFactory<LocalCircuitBreakerGatewayFilterFactory.Config> {
+
+	private final MeterRegistry meterRegistry;
+
+	public LocalCircuitBreakerGatewayFilterFactory(MeterRegistry meterRegistry) {
+		super(Config.class);
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		CircuitBreaker breaker = new CircuitBreaker(config.getFailureRateThreshold(), config.getSlidingWindowSize(),
+				config.getMinimumCalls(), config.getOpenDurationMs(), config.getHalfOpenCalls());
+		String routeId = config.getRouteId();
+		Gauge.builder("gateway.circuit.state", breaker, b -> b.state().ordinal())
+				.tag("routeId", routeId)
+				.description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+				.register(meterRegistry);
+		Counter rejected = Counter.builder("gateway.circuit.rejected").tag("routeId", routeId).register(meterRegistry);
+		Counter failures = Counter.builder("gateway.circuit.failures").tag("routeId", routeId).register(meterRegistry);
+		Counter timeouts = Counter.builder("gateway.route.timeouts").tag("routeId", routeId).register(meterRegistry);
+
+		return (exchange, chain) -> {
+			if (!breaker.tryAcquire(System.nanoTime())) {
+				rejected.increment();
+				exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+				exchange.getResponse().getHeaders().set("Retry-After",
+						String.valueOf(Math.max(1, config.getOpenDurationMs() / 1000)));
+				return exchange.getResponse().setComplete();
+			}
+			boolean[] recorded = new boolean[1];
+			return chain.filter(exchange)
+					.doOnSuccess(done -> {
+						HttpStatusCode status = exchange.getResponse().getStatusCode();
+						boolean failure = status != null && status.is5xxServerError();
+						if (failure) {
+							failures.increment();
+							if (status.value() == HttpStatus.GATEWAY_TIMEOUT.value()) {
+								timeouts.increment();
+							}
+						}
+						recorded[0] = true;
+						breaker.onResult(failure, System.nanoTime());
+					})
+					.doOnError(error -> {
+						failures.increment();
+						if (isTimeout(error)) {
+							timeouts.increment();
+						}
+						recorded[0] = true;
+						breaker.onResult(true, System.nanoTime());
+					})
+					.doFinally(signal -> {
+						if (signal == SignalType.CANCEL && !recorded[0]) {
+							breaker.onCancel();
+						}
+					});
+		};
+	}
+
+	private static boolean isTimeout(Throwable error) {
+		return error instanceof TimeoutException
+				|| (error instanceof ResponseStatusException rse
+						&& rse.getStatusCode().value() == HttpStatus.GATEWAY_TIMEOUT.value());
+	}
+
+	public static class Config implements HasRouteId {
+
+		private String routeId;
+
+		// Percentage of failed calls in the window that opens the breaker
+		private int failureRateThreshold = 50;
+
+		private int slidingWindowSize = 20;
+
+		// Calls needed in the window before the failure rate is evaluated
+		private int minimumCalls = 10;
+
+		private long openDurationMs = 10000;
+
+		// Trial calls allowed while half-open; all must succeed to close again
+		private int halfOpenCalls = 3;
+
+		@Override
+		public void setRouteId(String routeId) {
+			this.routeId = routeId;
+		}
+
+		@Override
+		public String getRouteId() {
+			return routeId;
+		}
+
+		public int getFailureRateThreshold() {
+			return failureRateThreshold;
+		}
+
+		public void setFailureRateThreshold(int failureRateThreshold) {
+			this.failureRateThreshold = failureRateThreshold;
+		}
+
+		public int getSlidingWindowSize() {
+			return slidingWindowSize;
+		}
+
+		public void setSlidingWindowSize(int slidingWindowSize) {
+			this.slidingWindowSize = slidingWindowSize;
+		}
+
+		public int getMinimumCalls() {
+			return minimumCalls;
+		}
+
+		public void setMinimumCalls(int minimumCalls) {
+			this.minimumCalls = minimumCalls;
+		}
+
+		public long getOpenDurationMs() {
+			return openDurationMs;
+		}
+
+		public void setOpenDurationMs(long openDurationMs) {
+			this.openDurationMs = openDurationMs;
+		}
+
+		public int getHalfOpenCalls() {
+			return halfOpenCalls;
+		}
+
+		public void setHalfOpenCalls(int halfOpenCalls) {
+			this.halfOpenCalls = halfOpenCalls;
+		}
+	}
+}
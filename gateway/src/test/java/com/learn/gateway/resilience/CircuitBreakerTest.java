@@ -0,0 +1,110 @@
+package com.learn.gateway.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.learn.gateway.resilience.CircuitBreaker.State;
+
+class CircuitBreakerTest {
+
+	private static final long MS = 1_000_000L;
+
+	// 50% of the last 4 calls, evaluated from 4 calls, open for 1 s, 2 trial calls
+	private final CircuitBreaker breaker = new CircuitBreaker(50, 4, 4, 1000, 2);
+
+	@Test
+	void staysClosedUntilMinimumCalls() {
+		breaker.onResult(true, 0);
+		breaker.onResult(true, 0);
+		breaker.onResult(true, 0);
+
+		assertEquals(State.CLOSED, breaker.state());
+		assertTrue(breaker.tryAcquire(0));
+	}
+
+	@Test
+	void opensWhenFailureRateReachesThreshold() {
+		breaker.onResult(false, 0);
+		breaker.onResult(true, 0);
+		breaker.onResult(false, 0);
+		assertEquals(State.CLOSED, breaker.state());
+
+		breaker.onResult(true, 10 * MS);
+
+		assertEquals(State.OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire(500 * MS));
+	}
+
+	@Test
+	void forgetsFailuresThatLeftTheWindow() {
+		breaker.onResult(true, 0);
+		breaker.onResult(false, 0);
+		breaker.onResult(false, 0);
+		breaker.onResult(false, 0);
+		breaker.onResult(false, 0);
+		breaker.onResult(true, 0);
+
+		assertEquals(State.CLOSED, breaker.state());
+	}
+
+	@Test
+	void halfOpensAfterOpenDurationWithLimitedTrialCalls() {
+		open(0);
+
+		assertFalse(breaker.tryAcquire(999 * MS));
+		assertTrue(breaker.tryAcquire(1000 * MS));
+		assertEquals(State.HALF_OPEN, breaker.state());
+		assertTrue(breaker.tryAcquire(1000 * MS));
+		assertFalse(breaker.tryAcquire(1000 * MS));
+	}
+
+	@Test
+	void closesWhenAllTrialCallsSucceed() {
+		open(0);
+		breaker.tryAcquire(1000 * MS);
+		breaker.tryAcquire(1000 * MS);
+
+		breaker.onResult(false, 1001 * MS);
+		assertEquals(State.HALF_OPEN, breaker.state());
+		breaker.onResult(false, 1002 * MS);
+
+		assertEquals(State.CLOSED, breaker.state());
+		// The window starts empty again, so a single failure does not reopen it
+		breaker.onResult(true, 1003 * MS);
+		assertEquals(State.CLOSED, breaker.state());
+	}
+
+	@Test
+	void reopensWhenTrialCallFails() {
+		open(0);
+		breaker.tryAcquire(1000 * MS);
+
+		breaker.onResult(true, 1500 * MS);
+
+		assertEquals(State.OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire(2000 * MS));
+		assertTrue(breaker.tryAcquire(2500 * MS));
+	}
+
+	@Test
+	void returnsPermitOfCancelledTrialCall() {
+		open(0);
+		breaker.tryAcquire(1000 * MS);
+		breaker.tryAcquire(1000 * MS);
+		assertFalse(breaker.tryAcquire(1000 * MS));
+
+		breaker.onCancel();
+
+		assertTrue(breaker.tryAcquire(1000 * MS));
+	}
+
+	private void open(long now) {
+		for (int i = 0; i < 4; i++) {
+			breaker.onResult(true, now);
+		}
+		assertEquals(State.OPEN, breaker.state());
+	}
+}
@@ -0,0 +1,184 @@
+package com.learn.gateway.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs the filter against a stub {@link ExchangeFunction} that answers the
+ * first attempt with the first scripted reply, the hedge with the second.
+ */
+class HedgeGatewayFilterFactoryTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final List<Reply> replies = new ArrayList<>();
+	private final AtomicInteger calls = new AtomicInteger();
+	// Attempts cancelled before their reply was due
+	private final AtomicInteger cancelled = new AtomicInteger();
+
+	private HedgeGatewayFilterFactory factory;
+	private HedgeGatewayFilterFactory.Config config;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		ExchangeFunction upstream = request -> {
+			Reply reply = replies.get(calls.getAndIncrement());
+			AtomicBoolean answered = new AtomicBoolean();
+			return Mono.delay(reply.delay())
+					.map(tick -> ClientResponse.create(reply.status())
+							.header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+							.body(reply.body())
+							.build())
+					.doOnNext(response -> answered.set(true))
+					.doOnCancel(() -> {
+						if (!answered.get()) {
+							cancelled.incrementAndGet();
+						}
+					});
+		};
+		ObjectProvider<List<HttpHeadersFilter>> headersFilters = mock(ObjectProvider.class);
+		when(headersFilters.getIfAvailable()).thenReturn(List.of());
+		factory = new HedgeGatewayFilterFactory(WebClient.builder().exchangeFunction(upstream), headersFilters,
+				new HttpClientProperties(), meterRegistry);
+
+		config = new HedgeGatewayFilterFactory.Config();
+		config.setRouteId("orders");
+		config.setMinDelayMs(10);
+		config.setMaxDelayMs(50);
+		// Every request earns a whole hedge
+		config.setBudgetPercent(100);
+	}
+
+	@Test
+	void returnsPrimaryWithoutHedgeWhenItAnswersBeforeDelay() throws Exception {
+		config.setMaxDelayMs(100);
+		reply(HttpStatus.OK, "primary", 0);
+		reply(HttpStatus.OK, "hedge", 0);
+
+		MockServerHttpResponse response = get(factory.apply(config));
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("primary", response.getBodyAsString().block(TIMEOUT));
+		Thread.sleep(200);
+		assertEquals(1, calls.get());
+		assertEquals(0, count("gateway.hedge.fired"));
+	}
+
+	@Test
+	void hedgeWinsWhenPrimaryIsSlow() {
+		reply(HttpStatus.OK, "primary", 2000);
+		reply(HttpStatus.OK, "hedge", 0);
+
+		MockServerHttpResponse response = get(factory.apply(config));
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("hedge", response.getBodyAsString().block(TIMEOUT));
+		assertEquals(1, count("gateway.hedge.fired"));
+		assertEquals(1, count("gateway.hedge.wins"));
+		assertEquals(1, cancelled.get());
+	}
+
+	@Test
+	void primaryWinsOverSlowerHedge() {
+		reply(HttpStatus.OK, "primary", 300);
+		reply(HttpStatus.OK, "hedge", 2000);
+
+		MockServerHttpResponse response = get(factory.apply(config));
+
+		assertEquals("primary", response.getBodyAsString().block(TIMEOUT));
+		assertEquals(1, count("gateway.hedge.fired"));
+		assertEquals(0, count("gateway.hedge.wins"));
+		assertEquals(1, cancelled.get());
+	}
+
+	@Test
+	void returnsPrimaryServerErrorBeforeDelayWithoutHedge() throws Exception {
+		config.setMaxDelayMs(300);
+		reply(HttpStatus.SERVICE_UNAVAILABLE, "down", 0);
+		reply(HttpStatus.OK, "hedge", 0);
+
+		MockServerHttpResponse response = get(factory.apply(config));
+
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+		assertEquals("down", response.getBodyAsString().block(TIMEOUT));
+		Thread.sleep(400);
+		assertEquals(1, calls.get());
+		assertEquals(0, count("gateway.hedge.fired"));
+	}
+
+	@Test
+	void usesHedgeWhenPrimaryFailsAfterItFired() {
+		reply(HttpStatus.SERVICE_UNAVAILABLE, "down", 200);
+		reply(HttpStatus.OK, "hedge", 300);
+
+		MockServerHttpResponse response = get(factory.apply(config));
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("hedge", response.getBodyAsString().block(TIMEOUT));
+		assertEquals(1, count("gateway.hedge.wins"));
+	}
+
+	@Test
+	void clampsDelayToMinimumOnceEnoughLatenciesAreSampled() {
+		config.setMaxDelayMs(1000);
+		GatewayFilter filter = factory.apply(config);
+		assertEquals(1000, meterRegistry.get("gateway.hedge.delay").gauge().value());
+
+		for (int i = 0; i < 20; i++) {
+			reply(HttpStatus.OK, "primary", 0);
+			assertTrue(get(filter).getStatusCode().is2xxSuccessful());
+		}
+
+		assertEquals(10, meterRegistry.get("gateway.hedge.delay").gauge().value());
+	}
+
+	private MockServerHttpResponse get(GatewayFilter filter) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/orders/1"));
+		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create("http://orders/orders/1"));
+		filter.filter(exchange, unrouted -> Mono.error(new AssertionError("GET was not hedged"))).block(TIMEOUT);
+		return exchange.getResponse();
+	}
+
+	private void reply(HttpStatus status, String body, long delayMs) {
+		replies.add(new Reply(status, body, Duration.ofMillis(delayMs)));
+	}
+
+	private double count(String name) {
+		return meterRegistry.counter(name, "routeId", "orders").count();
+	}
+
+	private record Reply(HttpStatus status, String body, Duration delay) {
+	}
+}
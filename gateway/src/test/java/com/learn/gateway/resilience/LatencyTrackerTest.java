@@ -0,0 +1,81 @@
+package com.learn.gateway.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyTrackerTest {
+
+	private static final long MS = 1_000_000L;
+
+	// Far enough apart that every sample recomputes the p95
+	private long now = 1000 * MS;
+
+	@Test
+	void computesP95OfRecordedLatencies() {
+		LatencyTracker tracker = new LatencyTracker(100);
+		for (int millis = 100; millis >= 1; millis--) {
+			record(tracker, millis);
+		}
+
+		assertEquals(95 * MS, tracker.p95Nanos());
+		assertEquals(100, tracker.sampleCount());
+	}
+
+	@Test
+	void keepsOnlyMostRecentSamples() {
+		LatencyTracker tracker = new LatencyTracker(10);
+		for (int i = 0; i < 10; i++) {
+			record(tracker, 900);
+		}
+		for (int i = 0; i < 10; i++) {
+			record(tracker, 5);
+		}
+
+		assertEquals(5 * MS, tracker.p95Nanos());
+		assertEquals(10, tracker.sampleCount());
+	}
+
+	@Test
+	void recomputesAtMostEveryHundredMillis() {
+		LatencyTracker tracker = new LatencyTracker(10);
+		tracker.record(10 * MS, now);
+
+		tracker.record(400 * MS, now + 50 * MS);
+		assertEquals(10 * MS, tracker.p95Nanos());
+
+		tracker.record(400 * MS, now + 100 * MS);
+		assertEquals(400 * MS, tracker.p95Nanos());
+	}
+
+	@Test
+	void usesMaximumUntilEnoughSamples() {
+		LatencyTracker tracker = new LatencyTracker(100);
+		assertEquals(500, tracker.p95Millis(20, 500, 3));
+
+		record(tracker, 100);
+		record(tracker, 100);
+		assertEquals(500, tracker.p95Millis(20, 500, 3));
+
+		record(tracker, 100);
+		assertEquals(100, tracker.p95Millis(20, 500, 3));
+	}
+
+	@Test
+	void clampsP95ToBounds() {
+		LatencyTracker fast = new LatencyTracker(10);
+		LatencyTracker slow = new LatencyTracker(10);
+		for (int i = 0; i < 10; i++) {
+			record(fast, 1);
+			record(slow, 2000);
+		}
+
+		assertEquals(20, fast.p95Millis(20, 500, 10));
+		assertEquals(500, slow.p95Millis(20, 500, 10));
+	}
+
+	private void record(LatencyTracker tracker, long millis) {
+		now += 100 * MS;
+		tracker.record(millis * MS, now);
+	}
+}
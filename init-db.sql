@@ -5,16 +5,57 @@ CREATE DATABASE inventory_db;
 -- Connect to order_db and create tables
 \c order_db;
 
+-- Orders are range-partitioned by month on created_at so recent-order lookups
+-- only touch hot partitions and cold months can be archived and dropped whole.
 CREATE TABLE orders (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     customer_name VARCHAR(255) NOT NULL,
     customer_email VARCHAR(255) NOT NULL,
     status VARCHAR(50) NOT NULL,
     total_amount DECIMAL(10,2) NOT NULL,
     created_at TIMESTAMP NOT NULL,
-    updated_at TIMESTAMP
-);
+    updated_at TIMESTAMP,
+    event_published_at TIMESTAMP,
+    republish_lease_until TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+
+CREATE INDEX idx_orders_customer_email_created_at ON orders (customer_email, created_at DESC);
+CREATE INDEX idx_orders_status_created_at ON orders (status, created_at);
+-- Work queue of the pending order processor: only holds orders whose event is not yet on Kafka
+CREATE INDEX idx_orders_pending_unpublished ON orders (created_at)
+    WHERE status = 'PENDING' AND event_published_at IS NULL;
 
+-- Creates the monthly partition containing the given date (no-op if it already exists).
+-- Rows of that month already sitting in orders_default (e.g. when maintenance did not run
+-- for longer than the premake window) are moved into the new table before it is attached;
+-- attaching would fail otherwise.
+CREATE OR REPLACE FUNCTION create_orders_partition(for_month DATE) RETURNS TEXT AS $$
+DECLARE
+    month_start DATE := date_trunc('month', for_month)::DATE;
+    month_end DATE := (date_trunc('month', for_month) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'orders_' || to_char(month_start, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN partition_name;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE orders INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM orders_default WHERE created_at >= %L AND created_at < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM moved',
+                   month_start, month_end, partition_name);
+    EXECUTE format('ALTER TABLE orders ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, month_start, month_end);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_orders_partition(CURRENT_DATE);
+SELECT create_orders_partition((CURRENT_DATE + INTERVAL '1 month')::DATE);
+
+-- order_id cannot reference orders(id) once orders is partitioned (the unique key
+-- must include created_at), so integrity is kept by the application and the archiver.
 CREATE TABLE order_items (
     id BIGSERIAL PRIMARY KEY,
     order_id BIGINT NOT NULL,
@@ -22,10 +63,21 @@ CREATE TABLE order_items (
     product_id BIGINT NOT NULL,
     quantity INTEGER NOT NULL,
     unit_price DECIMAL(10,2) NOT NULL,
-    total_price DECIMAL(10,2) NOT NULL,
-    FOREIGN KEY (order_id) REFERENCES orders(id)
+    total_price DECIMAL(10,2) NOT NULL
 );
 
+CREATE INDEX idx_order_items_order_id ON order_items (order_id);
+
+-- Idempotency-Key of each POST /api/orders, claimed in the same transaction as the order
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    order_id BIGINT,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
+
 -- Connect to inventory_db and create tables
 \c inventory_db;
 
@@ -37,9 +89,21 @@ CREATE TABLE products (
     stock_quantity INTEGER NOT NULL,
     category VARCHAR(100) NOT NULL,
     created_at TIMESTAMP NOT NULL,
-    updated_at TIMESTAMP
+    updated_at TIMESTAMP,
+    -- Optimistic lock for catalog edits (ETag); stock updates leave it unchanged
+    version BIGINT NOT NULL DEFAULT 0,
+    -- Incremented by every stock update; orders the levels on the stock-levels topic
+    stock_version BIGINT NOT NULL DEFAULT 0
 );
 
+-- Orders whose stock decrements were applied; republished order-created events are skipped
+CREATE TABLE processed_orders (
+    order_id BIGINT PRIMARY KEY,
+    processed_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_processed_orders_processed_at ON processed_orders (processed_at);
+
 -- Insert sample products
 INSERT INTO products (name, description, price, stock_quantity, category, created_at, updated_at) VALUES
 ('Laptop', 'High-performance laptop with latest specs', 999.99, 50, 'Electronics', NOW(), NOW()),
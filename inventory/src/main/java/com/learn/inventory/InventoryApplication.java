@@ -2,8 +2,17 @@ package com.learn.inventory;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.learn.common.datasource.DataSourceRoutingConfig;
+import com.learn.inventory.config.InventoryRuntimeHints;
 
 @SpringBootApplication
+@EnableScheduling
+@Import(DataSourceRoutingConfig.class)
+@ImportRuntimeHints(InventoryRuntimeHints.class)
 public class InventoryApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,187 @@
+package com.learn.inventory.bulk;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads a bulk request body one record at a time, as field name to raw value.
+ * Only the current record is held in memory, whatever the size of the body.
+ *
+ * Supported formats are CSV with a header line ({@code text/csv}) and one
+ * JSON object per line ({@code application/x-ndjson}).
+ */
+public abstract class BulkRecordReader implements Closeable {
+    public static final String CSV = "text/csv";
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    protected final BufferedReader reader;
+    protected long lineNumber;
+
+    protected BulkRecordReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    public static BulkRecordReader open(InputStream in, String contentType) throws IOException {
+        String type = contentType == null ? "" : contentType.toLowerCase();
+        if (type.startsWith(CSV)) {
+            return new Csv(in);
+        }
+        if (type.startsWith(NDJSON)) {
+            return new Ndjson(in);
+        }
+        throw new IllegalArgumentException("Unsupported bulk content type: " + contentType);
+    }
+
+    /**
+     * Returns the next record, or null at the end of the body. A record that
+     * cannot be parsed throws {@link IllegalArgumentException}; reading can
+     * continue with the following record.
+     */
+    public abstract Map<String, String> next() throws IOException;
+
+    /** Line on which the last returned (or rejected) record starts. */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static final class Ndjson extends BulkRecordReader {
+        private long physicalLine;
+
+        private Ndjson(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+                physicalLine++;
+            } while (line.isBlank());
+            lineNumber = physicalLine;
+
+            JsonNode node;
+            try {
+                node = OBJECT_MAPPER.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("invalid JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("expected a JSON object");
+            }
+            Map<String, String> record = new HashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                record.put(field.getKey(), field.getValue().isNull() ? null : field.getValue().asText());
+            }
+            return record;
+        }
+    }
+
+    private static final class Csv extends BulkRecordReader {
+        private final List<String> header;
+        private long physicalLine = 1;
+
+        private Csv(InputStream in) throws IOException {
+            super(in);
+            this.header = readRow();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV body must start with a header line");
+            }
+            header.replaceAll(String::trim);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            List<String> row;
+            do {
+                row = readRow();
+                if (row == null) {
+                    return null;
+                }
+            } while (row.size() == 1 && row.get(0).isEmpty());
+
+            if (row.size() != header.size()) {
+                throw new IllegalArgumentException("expected " + header.size() + " columns but found " + row.size());
+            }
+            Map<String, String> record = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                String value = row.get(i);
+                record.put(header.get(i), value.isEmpty() ? null : value);
+            }
+            return record;
+        }
+
+        // RFC 4180: quoted fields may contain separators, doubled quotes and line breaks
+        private List<String> readRow() throws IOException {
+            lineNumber = physicalLine;
+            List<String> row = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        reader.mark(1);
+                        int following = reader.read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        if (c == '\n') {
+                            physicalLine++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    row.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    if (c == '\n') {
+                        physicalLine++;
+                    }
+                    row.add(field.toString());
+                    return row;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.learn.inventory.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.learn.inventory.dto.BulkResult;
+import com.learn.inventory.stock.StockLevelPublisher;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk product upsert and stock adjustment for catalog loads.
+ *
+ * The body is parsed record by record and streamed with COPY into a
+ * transaction-scoped staging table. Conflicts are then resolved and the
+ * catalog updated with a few set-based statements, instead of a uniqueness
+ * query plus a write per product. The merge statements record the ids they
+ * touched in a second staging table, which is read back before the commit so
+ * that only those products are published. Apart from those ids (8 bytes per
+ * changed product), memory use does not depend on the body size.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class ProductBulkLoader {
+    private static final String CREATE_PRODUCT_STAGING_SQL =
+            "CREATE TEMP TABLE product_import_staging (line_no BIGINT NOT NULL, id BIGINT, name TEXT NOT NULL, " +
+            "description TEXT NOT NULL, price NUMERIC(10,2) NOT NULL, stock_quantity INTEGER NOT NULL, " +
+            "category TEXT NOT NULL) ON COMMIT DROP";
+
+    private static final String COPY_PRODUCTS_SQL =
+            "COPY product_import_staging (line_no, id, name, description, price, stock_quantity, category) " +
+            "FROM STDIN WITH (FORMAT csv)";
+
+    // Within the file the last line for a name wins
+    private static final String DELETE_DUPLICATE_NAMES_SQL =
+            "DELETE FROM product_import_staging WHERE line_no IN (" +
+            "SELECT line_no FROM (SELECT line_no, row_number() OVER (PARTITION BY name ORDER BY line_no DESC) AS rn " +
+            "FROM product_import_staging) ranked WHERE rn > 1) RETURNING line_no, name";
+
+    private static final String DELETE_UNKNOWN_IDS_SQL =
+            "DELETE FROM product_import_staging s WHERE s.id IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM products p WHERE p.id = s.id) RETURNING s.line_no, s.id";
+
+    private static final String DELETE_NAME_TAKEN_SQL =
+            "DELETE FROM product_import_staging s USING products p " +
+            "WHERE s.id IS NOT NULL AND p.name = s.name AND p.id <> s.id RETURNING s.line_no, s.name, p.id";
+
+    private static final String CREATE_CHANGED_STAGING_SQL =
+            "CREATE TEMP TABLE changed_product_staging (id BIGINT PRIMARY KEY) ON COMMIT DROP";
+
+    private static final String SELECT_CHANGED_IDS_SQL = "SELECT id FROM changed_product_staging ORDER BY id";
+
+    // The update count is the number of ids recorded, i.e. of products updated
+    private static final String UPDATE_BY_ID_SQL =
+            "WITH updated AS (" +
+            "UPDATE products p SET name = s.name, description = s.description, price = s.price, " +
+            "stock_quantity = s.stock_quantity, stock_version = p.stock_version + 1, category = s.category, updated_at = ?, " +
+            "version = p.version + 1 " +
+            "FROM product_import_staging s WHERE s.id = p.id RETURNING p.id) " +
+            "INSERT INTO changed_product_staging SELECT id FROM updated ON CONFLICT DO NOTHING";
+
+    // One statement for all rows keyed by name; xmax = 0 distinguishes inserted from updated rows
+    private static final String UPSERT_BY_NAME_SQL =
+            "WITH upserted AS (" +
+            "INSERT INTO products (name, description, price, stock_quantity, category, created_at, updated_at) " +
+            "SELECT name, description, price, stock_quantity, category, ?, ? FROM product_import_staging " +
+            "WHERE id IS NULL ORDER BY line_no " +
+            "ON CONFLICT (name) DO UPDATE SET description = EXCLUDED.description, price = EXCLUDED.price, " +
+            "stock_quantity = EXCLUDED.stock_quantity, stock_version = products.stock_version + 1, " +
+            "category = EXCLUDED.category, updated_at = EXCLUDED.updated_at, version = products.version + 1 " +
+            "RETURNING id, (xmax = 0) AS inserted), " +
+            "changed AS (INSERT INTO changed_product_staging SELECT id FROM upserted ON CONFLICT DO NOTHING) " +
+            "SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted) FROM upserted";
+
+    private static final String CREATE_STOCK_STAGING_SQL =
+            "CREATE TEMP TABLE stock_adjustment_staging (line_no BIGINT NOT NULL, product_id BIGINT NOT NULL, " +
+            "delta INTEGER NOT NULL) ON COMMIT DROP";
+
+    private static final String COPY_STOCK_SQL =
+            "COPY stock_adjustment_staging (line_no, product_id, delta) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String DELETE_UNKNOWN_PRODUCTS_SQL =
+            "DELETE FROM stock_adjustment_staging s " +
+            "WHERE NOT EXISTS (SELECT 1 FROM products p WHERE p.id = s.product_id) RETURNING s.line_no, s.product_id";
+
+    // Adjustments are netted per product and applied all-or-nothing per product
+    private static final String APPLY_STOCK_SQL =
+            "WITH net AS (SELECT product_id, SUM(delta) AS delta FROM stock_adjustment_staging GROUP BY product_id), " +
+            "applied AS (UPDATE products p SET stock_quantity = p.stock_quantity + net.delta, " +
+            "stock_version = p.stock_version + 1, updated_at = ? FROM net " +
+            "WHERE p.id = net.product_id AND p.stock_quantity + net.delta BETWEEN 0 AND 2147483647 RETURNING p.id), " +
+            "changed AS (INSERT INTO changed_product_staging SELECT id FROM applied) " +
+            "SELECT net.product_id, net.delta, applied.id IS NOT NULL FROM net " +
+            "LEFT JOIN applied ON applied.id = net.product_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StockLevelPublisher stockLevelPublisher;
+
+    @Transactional
+    public BulkResult upsertProducts(InputStream body, String contentType) throws IOException {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        BulkResult result = new BulkResult();
+
+        jdbcTemplate.execute(CREATE_PRODUCT_STAGING_SQL);
+        jdbcTemplate.execute(CREATE_CHANGED_STAGING_SQL);
+        long staged;
+        try (BulkRecordReader reader = BulkRecordReader.open(body, contentType)) {
+            staged = copy(COPY_PRODUCTS_SQL, copy -> {
+                Map<String, String> record;
+                while ((record = next(reader, result)) != null) {
+                    String name = record.get("name");
+                    try {
+                        Long id = parseLong(record.get("id"));
+                        if (name == null || name.isBlank() || name.length() > 255) {
+                            throw new IllegalArgumentException("name is required (at most 255 characters)");
+                        }
+                        BigDecimal price = new BigDecimal(required(record, "price"));
+                        if (price.signum() < 0 || price.scale() > 2 || price.precision() - price.scale() > 8) {
+                            throw new IllegalArgumentException("price must be a non-negative amount with at most 2 decimals");
+                        }
+                        int stockQuantity = Integer.parseInt(required(record, "stockQuantity"));
+                        if (stockQuantity < 0) {
+                            throw new IllegalArgumentException("stockQuantity must not be negative");
+                        }
+                        String category = required(record, "category");
+                        if (category.length() > 100) {
+                            throw new IllegalArgumentException("category must be at most 100 characters");
+                        }
+                        String description = record.get("description");
+                        copy.row(reader.lineNumber(), id, name, description != null ? description : "",
+                                price, stockQuantity, category);
+                    } catch (IllegalArgumentException e) {
+                        result.reject(reader.lineNumber(), name, e.getMessage());
+                    }
+                }
+            });
+        }
+        log.info("Staged {} of {} product records", staged, result.getReceived());
+
+        jdbcTemplate.execute("ANALYZE product_import_staging");
+        jdbcTemplate.query(DELETE_DUPLICATE_NAMES_SQL, rs -> {
+            result.conflict(rs.getLong(1), rs.getString(2), "duplicate name, superseded by a later line");
+        });
+        jdbcTemplate.query(DELETE_UNKNOWN_IDS_SQL, rs -> {
+            result.conflict(rs.getLong(1), rs.getString(2), "unknown product id");
+        });
+        jdbcTemplate.query(DELETE_NAME_TAKEN_SQL, rs -> {
+            result.conflict(rs.getLong(1), rs.getString(2), "name already used by product " + rs.getLong(3));
+        });
+
+        Timestamp timestamp = Timestamp.valueOf(now);
+        int updatedById = jdbcTemplate.update(UPDATE_BY_ID_SQL, timestamp);
+        jdbcTemplate.query(UPSERT_BY_NAME_SQL, rs -> {
+            result.setInserted(rs.getLong(1));
+            result.setUpdated(updatedById + rs.getLong(2));
+        }, timestamp, timestamp);
+
+        stockLevelPublisher.stockChanged(changedProductIds());
+        log.info("Bulk product upsert: received {}, inserted {}, updated {}, rejected {}, conflicts {}",
+                result.getReceived(), result.getInserted(), result.getUpdated(), result.getRejected(), result.getConflicts());
+        return result;
+    }
+
+    @Transactional
+    public BulkResult adjustStock(InputStream body, String contentType) throws IOException {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        BulkResult result = new BulkResult();
+
+        jdbcTemplate.execute(CREATE_STOCK_STAGING_SQL);
+        jdbcTemplate.execute(CREATE_CHANGED_STAGING_SQL);
+        long staged;
+        try (BulkRecordReader reader = BulkRecordReader.open(body, contentType)) {
+            staged = copy(COPY_STOCK_SQL, copy -> {
+                Map<String, String> record;
+                while ((record = next(reader, result)) != null) {
+                    String productId = record.get("productId");
+                    try {
+                        long id = Long.parseLong(required(record, "productId"));
+                        int delta = Integer.parseInt(required(record, "delta"));
+                        copy.row(reader.lineNumber(), id, delta);
+                    } catch (IllegalArgumentException e) {
+                        result.reject(reader.lineNumber(), productId, e.getMessage());
+                    }
+                }
+            });
+        }
+        log.info("Staged {} of {} stock adjustment records", staged, result.getReceived());
+
+        jdbcTemplate.query(DELETE_UNKNOWN_PRODUCTS_SQL, rs -> {
+            result.conflict(rs.getLong(1), rs.getString(2), "unknown product id");
+        });
+        jdbcTemplate.query(APPLY_STOCK_SQL, rs -> {
+            if (rs.getBoolean(3)) {
+                result.setUpdated(result.getUpdated() + 1);
+            } else {
+                result.conflict(null, rs.getString(1), "net adjustment " + rs.getLong(2) + " would leave stock out of range");
+            }
+        }, Timestamp.valueOf(now));
+
+        stockLevelPublisher.stockChanged(changedProductIds());
+        log.info("Bulk stock adjustment: received {}, products updated {}, rejected {}, conflicts {}",
+                result.getReceived(), result.getUpdated(), result.getRejected(), result.getConflicts());
+        return result;
+    }
+
+    // Read before the commit drops the staging table; published once the transaction commits
+    private long[] changedProductIds() {
+        return jdbcTemplate.query(SELECT_CHANGED_IDS_SQL, rs -> {
+            LongStream.Builder ids = LongStream.builder();
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+            return ids.build().toArray();
+        });
+    }
+
+    // Counts every record read; unparseable ones are rejected and skipped
+    private Map<String, String> next(BulkRecordReader reader, BulkResult result) throws IOException {
+        while (true) {
+            try {
+                Map<String, String> record = reader.next();
+                if (record != null) {
+                    result.setReceived(result.getReceived() + 1);
+                }
+                return record;
+            } catch (IllegalArgumentException e) {
+                result.setReceived(result.getReceived() + 1);
+                result.reject(reader.lineNumber(), null, e.getMessage());
+            }
+        }
+    }
+
+    private long copy(String sql, RowSource source) throws IOException {
+        try {
+            return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                CopyWriter copy = new CopyWriter(connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql));
+                try {
+                    source.write(copy);
+                    return copy.finish();
+                } catch (IOException e) {
+                    copy.cancel();
+                    throw new UncheckedIOException(e);
+                } catch (RuntimeException | SQLException e) {
+                    copy.cancel();
+                    throw e;
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String required(Map<String, String> record, String field) {
+        String value = record.get(field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value.trim();
+    }
+
+    private static Long parseLong(String value) {
+        return value == null || value.isBlank() ? null : Long.valueOf(value.trim());
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        void write(CopyWriter copy) throws IOException, SQLException;
+    }
+}
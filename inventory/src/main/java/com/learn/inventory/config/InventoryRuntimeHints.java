@@ -0,0 +1,41 @@
+package com.learn.inventory.config;
+
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import com.learn.common.dto.OrderCreatedEvent;
+import com.learn.common.dto.StockLevelEvent;
+import com.learn.common.money.MoneyJsonDeserializer;
+import com.learn.common.money.MoneyJsonSerializer;
+import com.learn.inventory.entity.Product;
+
+/**
+ * Reflection hints for the AOT/native build: Jackson binds the events and the
+ * entity reflectively, and Kafka instantiates its deserializers by class name
+ * from the configuration.
+ */
+public class InventoryRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> type : new Class<?>[] {
+                OrderCreatedEvent.class, OrderCreatedEvent.OrderItemEvent.class, StockLevelEvent.class, Product.class }) {
+            hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS,
+                    MemberCategory.DECLARED_FIELDS);
+        }
+        hints.reflection().registerType(MoneyJsonSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(MoneyJsonDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(ErrorHandlingDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(JsonDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(StringDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(JsonSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(StringSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
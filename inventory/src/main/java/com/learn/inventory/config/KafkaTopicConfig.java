@@ -0,0 +1,25 @@
+package com.learn.inventory.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    // Compacted changelog: only the latest stock level per product id is retained
+    @Bean
+    public NewTopic stockLevelsTopic(@Value("${kafka.topic.stock-levels}") String name,
+                                     @Value("${kafka.topic.stock-levels-partitions:3}") int partitions) {
+        return TopicBuilder.name(name)
+                .partitions(partitions)
+                .replicas(1)
+                .compact()
+                .config(TopicConfig.MIN_COMPACTION_LAG_MS_CONFIG, "0")
+                .config(TopicConfig.SEGMENT_MS_CONFIG, "3600000")
+                .build();
+    }
+}
@@ -1,8 +1,12 @@
 package com.learn.inventory.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,11 +15,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.learn.inventory.bulk.BulkRecordReader;
+import com.learn.inventory.dto.BulkResult;
 import com.learn.inventory.entity.Product;
+import com.learn.inventory.exception.StockNotEditableException;
+import com.learn.inventory.exception.VersionConflictException;
 import com.learn.inventory.service.ProductService;
 
 import lombok.AllArgsConstructor;
@@ -26,6 +35,8 @@ import lombok.extern.slf4j.Slf4j;
 @AllArgsConstructor
 @Slf4j
 public class ProductController {
+    private static final int MAX_IDS_PER_REQUEST = 200;
+
     private final ProductService productService;
 
     @GetMapping
@@ -35,11 +46,22 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    // Multi-get for composite callers: one query for all ids, unknown ids are simply absent
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<Product>> getProductsByIds(@RequestParam List<Long> ids) {
+        log.info("GET /api/products?ids - Fetching {} products by id", ids.size());
+        if (ids.size() > MAX_IDS_PER_REQUEST) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Product> products = productService.getProductsByIds(new LinkedHashSet<>(ids));
+        return ResponseEntity.ok(products);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Long id) {
         log.info("GET /api/products/{} - Fetching product by id", id);
         Optional<Product> product = productService.getProductById(id);
-        return product.map(ResponseEntity::ok)
+        return product.map(p -> ResponseEntity.ok().eTag(etag(p)).body(p))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -55,12 +77,27 @@ public class ProductController {
         }
     }
 
+    // Catalog edit; with If-Match it only applies to that version (ETag from GET), otherwise it is retried on conflicts
     @PutMapping("/{id}")
-    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product productDetails) {
-        log.info("PUT /api/products/{} - Updating product", id);
+    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product productDetails,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("PUT /api/products/{} - Updating product (If-Match: {})", id, ifMatch);
         try {
-            Product updatedProduct = productService.updateProduct(id, productDetails);
-            return ResponseEntity.ok(updatedProduct);
+            Product updatedProduct = productService.updateProduct(id, productDetails, expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(etag(updatedProduct)).body(updatedProduct);
+        } catch (VersionConflictException e) {
+            log.warn("Conditional update of product {} rejected: {}", id, e.getMessage());
+            // Version read by the failed attempt on the primary, not a possibly lagging replica read
+            if (e.getCurrentVersion() == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(etag(e.getCurrentVersion())).build();
+        } catch (StockNotEditableException e) {
+            log.warn("Update of product {} rejected: {}", id, e.getMessage());
+            // Points the client at the endpoint that moves stock
+            return ResponseEntity.badRequest()
+                    .header(HttpHeaders.LINK, "</api/products/" + id + "/stock>; rel=\"stock\"")
+                    .build();
         } catch (RuntimeException e) {
             log.error("Failed to update product: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
@@ -90,4 +127,58 @@ public class ProductController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    // Streaming catalog load: CSV with header or NDJSON with id (optional), name, description, price, stockQuantity, category
+    @PostMapping(value = "/bulk", consumes = {BulkRecordReader.CSV, BulkRecordReader.NDJSON})
+    public ResponseEntity<BulkResult> bulkUpsertProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                         InputStream body) {
+        log.info("POST /api/products/bulk - Bulk upserting products ({})", contentType);
+        try {
+            BulkResult result = productService.bulkUpsertProducts(body, contentType);
+            return ResponseEntity.ok(result);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to bulk upsert products: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Streaming stock adjustment: records of productId and delta, netted per product
+    @PostMapping(value = "/bulk/stock", consumes = {BulkRecordReader.CSV, BulkRecordReader.NDJSON})
+    public ResponseEntity<BulkResult> bulkAdjustStock(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                      InputStream body) {
+        log.info("POST /api/products/bulk/stock - Bulk adjusting stock ({})", contentType);
+        try {
+            BulkResult result = productService.bulkAdjustStock(body, contentType);
+            return ResponseEntity.ok(result);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to bulk adjust stock: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static String etag(Product product) {
+        return etag(product.getVersion());
+    }
+
+    private static String etag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // If-Match carries the ETag of a previous GET ("3" or W/"3"); "*" or no header means unconditional
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        tag = tag.replace("\"", "");
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException e) {
+            // Cannot match any version, so the update is rejected as stale
+            return -1L;
+        }
+    }
 }
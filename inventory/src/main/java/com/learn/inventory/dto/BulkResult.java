@@ -0,0 +1,46 @@
+package com.learn.inventory.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Outcome of a bulk request. Counters cover every record; only the first
+ * {@code MAX_ISSUES} rejected or conflicting records are listed individually.
+ */
+@Data
+public class BulkResult {
+    public static final int MAX_ISSUES = 1000;
+
+    private long received;
+    private long inserted;
+    private long updated;
+    private long rejected;
+    private long conflicts;
+    private List<Issue> issues = new ArrayList<>();
+    private boolean issuesTruncated;
+
+    // Record that could not be parsed or failed validation, never staged
+    public void reject(long line, String key, String reason) {
+        rejected++;
+        addIssue(line, key, reason);
+    }
+
+    // Valid record that could not be applied to the current catalog
+    public void conflict(Long line, String key, String reason) {
+        conflicts++;
+        addIssue(line, key, reason);
+    }
+
+    private void addIssue(Long line, String key, String reason) {
+        if (issues.size() < MAX_ISSUES) {
+            issues.add(new Issue(line, key, reason));
+        } else {
+            issuesTruncated = true;
+        }
+    }
+
+    public record Issue(Long line, String key, String reason) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.learn.inventory.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// An order whose stock decrements are applied; a redelivered or republished event for it is skipped
+@Entity
+@Table(name = "processed_orders", indexes = @Index(name = "idx_processed_orders_processed_at", columnList = "processed_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessedOrder {
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "processed_at", nullable = false)
+    private LocalDateTime processedAt;
+}
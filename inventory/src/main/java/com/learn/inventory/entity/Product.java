@@ -3,6 +3,10 @@ package com.learn.inventory.entity;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.ColumnDefault;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -11,6 +15,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -34,9 +39,17 @@ public class Product {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal price;
 
-    @Column(nullable = false)
+    // Never written from the entity: stock only changes through atomic conditional UPDATEs,
+    // so catalog edits and stock movements cannot overwrite each other
+    @Column(nullable = false, updatable = false)
     private Integer stockQuantity;
 
+    // Bumped by the database in every stock UPDATE; orders the levels published to the stock-levels topic
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "stock_version", nullable = false, updatable = false)
+    private Long stockVersion = 0L;
+
     @Column(nullable = false)
     private String category;
 
@@ -46,6 +59,12 @@ public class Product {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Optimistic lock for catalog edits, exposed as the ETag of the product
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -0,0 +1,13 @@
+package com.learn.inventory.exception;
+
+/**
+ * A catalog update (PUT) carried a stockQuantity different from the stored
+ * one. Stock only moves through the stock endpoints, so the update is
+ * rejected instead of silently dropping the new quantity.
+ */
+public class StockNotEditableException extends RuntimeException {
+
+    public StockNotEditableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.learn.inventory.exception;
+
+/**
+ * A conditional update (If-Match) was based on a version of the product that
+ * is no longer current. Carries the current version as read on the primary by
+ * the failed attempt, or null if the product no longer exists.
+ */
+public class VersionConflictException extends RuntimeException {
+    private final Long currentVersion;
+
+    public VersionConflictException(String message, Long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+}
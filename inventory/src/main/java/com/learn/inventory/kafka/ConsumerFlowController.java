@@ -0,0 +1,139 @@
+package com.learn.inventory.kafka;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adaptive flow control for the order-created listener. Watches how many
+ * threads are waiting for a Hikari connection and the per-event processing
+ * latency; when the database falls behind it pauses the assigned partitions
+ * (the consumer keeps polling, so the group does not rebalance) and shrinks
+ * the number of records handled per poll, then grows it back additively
+ * once the pool and latency recover.
+ */
+@Slf4j
+@Component
+public class ConsumerFlowController {
+    static final String LISTENER_ID = "orderCreatedListener";
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final HikariDataSource pool;
+
+    @Value("${inventory.flow-control.pause-pending-threads:4}")
+    private int pausePendingThreads;
+
+    @Value("${inventory.flow-control.max-event-latency-ms:50}")
+    private double maxEventLatencyMs;
+
+    @Value("${inventory.flow-control.target-event-latency-ms:10}")
+    private double targetEventLatencyMs;
+
+    @Value("${inventory.flow-control.min-batch-size:10}")
+    private int minBatchSize;
+
+    @Value("${inventory.flow-control.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${inventory.flow-control.batch-size-step:20}")
+    private int batchSizeStep;
+
+    private volatile int batchLimit;
+    private volatile double eventLatencyMs;
+    private volatile boolean paused;
+
+    public ConsumerFlowController(KafkaListenerEndpointRegistry registry, DataSource dataSource, MeterRegistry meterRegistry) {
+        this.registry = registry;
+        this.pool = hikariPool(dataSource);
+        Gauge.builder("inventory.consumer.flow.paused", this, controller -> controller.paused ? 1 : 0)
+                .description("1 while the order-created partitions are paused").register(meterRegistry);
+        Gauge.builder("inventory.consumer.flow.batch.limit", this, controller -> controller.batchLimit)
+                .description("Records processed per poll").register(meterRegistry);
+        Gauge.builder("inventory.consumer.flow.event.latency", this, controller -> controller.eventLatencyMs)
+                .description("Smoothed per-event processing latency").baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("inventory.consumer.flow.pending.connections", this, ConsumerFlowController::pendingThreads)
+                .description("Threads waiting for a database connection").register(meterRegistry);
+    }
+
+    /** How many records of the current poll the listener should process. */
+    public int batchLimit() {
+        if (batchLimit == 0) {
+            batchLimit = maxBatchSize;
+        }
+        return batchLimit;
+    }
+
+    /** Feeds the latency of one processed batch into the moving average. */
+    public void recordBatch(int events, long elapsedNanos) {
+        if (events == 0) {
+            return;
+        }
+        double perEvent = elapsedNanos / 1_000_000.0 / events;
+        eventLatencyMs = eventLatencyMs == 0 ? perEvent : eventLatencyMs * 0.8 + perEvent * 0.2;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.flow-control.interval-ms:500}")
+    public void adjust() {
+        MessageListenerContainer container = registry.getListenerContainer(LISTENER_ID);
+        if (container == null || !container.isRunning()) {
+            return;
+        }
+        int pending = pendingThreads();
+        double latency = eventLatencyMs;
+        int limit = batchLimit();
+
+        if (pending >= pausePendingThreads || latency > maxEventLatencyMs) {
+            // Multiplicative decrease, and stop fetching entirely while the pool is saturated
+            batchLimit = Math.max(minBatchSize, limit / 2);
+            if (pending >= pausePendingThreads && !paused) {
+                container.pause();
+                paused = true;
+                log.warn("Pausing order-created consumption: {} threads waiting for a connection, {} ms/event",
+                        pending, String.format("%.1f", latency));
+            }
+        } else if (pending == 0 && latency <= targetEventLatencyMs) {
+            if (paused) {
+                container.resume();
+                paused = false;
+                log.info("Resuming order-created consumption with batch limit {}", limit);
+            }
+            batchLimit = Math.min(maxBatchSize, limit + batchSizeStep);
+        }
+        if (paused) {
+            // Nothing is processed while paused, so let the latency average decay towards recovery
+            eventLatencyMs = latency * 0.5;
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    private int pendingThreads() {
+        // The pool MXBean only exists once Hikari has started, which happens lazily
+        HikariPoolMXBean poolMXBean = pool != null ? pool.getHikariPoolMXBean() : null;
+        return poolMXBean != null ? poolMXBean.getThreadsAwaitingConnection() : 0;
+    }
+
+    private static HikariDataSource hikariPool(DataSource dataSource) {
+        try {
+            return dataSource.unwrap(HikariDataSource.class);
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Connection pool is not Hikari, flow control will only use processing latency");
+            return null;
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.learn.inventory.kafka;
 
+import java.time.Duration;
+import java.util.List;
+
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
 import com.learn.common.dto.OrderCreatedEvent;
-import com.learn.inventory.service.ProductService;
+import com.learn.inventory.stock.StockWriteAggregator;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,25 +17,49 @@ import lombok.extern.slf4j.Slf4j;
 @AllArgsConstructor
 @Slf4j
 public class OrderEventConsumer {
-    private final ProductService productService;
-    // private final ObjectMapper objectMapper;
+    private final StockWriteAggregator stockWriteAggregator;
+    private final ConsumerFlowController consumerFlowController;
+
+    // Each poll is one write window: decrements are coalesced per product, flushed,
+    // and only then are the offsets committed. The flow controller may cap how many
+    // records of the poll are handled; the rest are re-seeked and delivered again.
+    @KafkaListener(id = ConsumerFlowController.LISTENER_ID, idIsGroup = false,
+            topics = "${kafka.topic.order-created}", groupId = "${kafka.group-id.inventory}", batch = "true")
+    public void consumeOrderCreatedEvents(List<OrderCreatedEvent> orderCreatedEvents, Acknowledgment acknowledgment) {
+        int limit = Math.min(orderCreatedEvents.size(), consumerFlowController.batchLimit());
+        log.info("Received batch of {} order created events, processing {}", orderCreatedEvents.size(), limit);
 
-    @KafkaListener(topics = "${kafka.topic.order-created}", groupId = "${kafka.group-id.inventory}")
-    public void consumeOrderCreatedEvent(OrderCreatedEvent orderCreatedEvent) {
+        long start = System.nanoTime();
+        StockWriteAggregator.Batch batch = stockWriteAggregator.newBatch();
+        for (OrderCreatedEvent orderCreatedEvent : orderCreatedEvents.subList(0, limit)) {
+            recordOrderCreatedEvent(batch, orderCreatedEvent);
+        }
+        batch.flush();
+        consumerFlowController.recordBatch(limit, System.nanoTime() - start);
+
+        if (limit < orderCreatedEvents.size()) {
+            // Commits the processed records and re-seeks to the first unprocessed one
+            acknowledgment.nack(limit, Duration.ZERO);
+        } else {
+            acknowledgment.acknowledge();
+        }
+    }
+
+    private void recordOrderCreatedEvent(StockWriteAggregator.Batch batch, OrderCreatedEvent orderCreatedEvent) {
         try {
-            log.info("Received order created event: {}", orderCreatedEvent);
-            // OrderCreatedEvent event = objectMapper.readValue(message, OrderCreatedEvent.class);
             log.info("Parsed order created event for order: {}, customer: {}",
                     orderCreatedEvent.getOrderId(), orderCreatedEvent.getCustomerName());
-            // Process each order item and update stock
+            if (!batch.startOrder(orderCreatedEvent.getOrderId())) {
+                log.info("Skipping duplicate order created event for order: {}", orderCreatedEvent.getOrderId());
+                return;
+            }
+            // Reserve stock for each order item, written on the next flush
             for (OrderCreatedEvent.OrderItemEvent itemEvent : orderCreatedEvent.getOrderItems()) {
                 try {
                     log.info("Processing order item: productId={}, quantity={}",
                             itemEvent.getProductId(), itemEvent.getQuantity());
 
-                    productService.updateStockQuantity(itemEvent.getProductId(), itemEvent.getQuantity());
-
-                    log.info("Successfully updated stock for product: {}", itemEvent.getProductId());
+                    batch.record(orderCreatedEvent.getOrderId(), itemEvent.getProductId(), itemEvent.getQuantity());
 
                 } catch (Exception e) {
                     log.error("Failed to update stock for product: {}, order: {}",
@@ -0,0 +1,31 @@
+package com.learn.inventory.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.learn.inventory.entity.ProcessedOrder;
+
+public interface ProcessedOrderRepository extends JpaRepository<ProcessedOrder, Long> {
+
+    // One statement for the whole batch; returns only the ids that were not processed before,
+    // and a concurrent claim of the same id waits for the other transaction instead of applying twice.
+    // Read-write, so the insert never lands on a read-only replica transaction
+    @Transactional
+    @Query(value = "INSERT INTO processed_orders (order_id, processed_at) " +
+                   "SELECT order_id, :processedAt FROM unnest(ARRAY[:orderIds]) AS order_id " +
+                   "ON CONFLICT (order_id) DO NOTHING RETURNING order_id",
+           nativeQuery = true)
+    List<Long> claim(@Param("orderIds") Collection<Long> orderIds, @Param("processedAt") LocalDateTime processedAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ProcessedOrder o WHERE o.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
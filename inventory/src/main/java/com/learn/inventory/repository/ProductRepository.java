@@ -1,12 +1,37 @@
 package com.learn.inventory.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.learn.inventory.entity.Product;
 
 public interface ProductRepository extends JpaRepository<Product,Long> {
     Optional<Product> findByName(String name);
     Optional<Product> findByNameAndIdNot(String name,Long id);
-}
\ No newline at end of file
+
+    @Query("SELECT p.stockQuantity FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockQuantityById(@Param("id") Long id);
+
+    // Projection, not entities: always reads the committed row instead of a cached managed instance
+    List<StockLevel> findStockLevelsByIdIn(Collection<Long> ids);
+
+    // Single conditional write: only applies when enough stock is left, returns the affected row count
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, " +
+           "p.stockVersion = p.stockVersion + 1, p.updatedAt = :updatedAt " +
+           "WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("updatedAt") LocalDateTime updatedAt);
+
+    interface StockLevel {
+        Long getId();
+        Integer getStockQuantity();
+        Long getStockVersion();
+    }
+}
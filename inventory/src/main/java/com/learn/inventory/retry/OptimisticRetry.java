@@ -0,0 +1,67 @@
+package com.learn.inventory.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a read-modify-write in its own transaction and repeats it when the
+ * optimistic version check fails at commit, backing off with full jitter
+ * (a random sleep up to an exponentially growing cap) so competing writers
+ * spread out instead of colliding again.
+ */
+@Slf4j
+@Component
+public class OptimisticRetry {
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${inventory.optimistic-retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${inventory.optimistic-retry.base-backoff-ms:5}")
+    private long baseBackoffMs;
+
+    @Value("${inventory.optimistic-retry.max-backoff-ms:200}")
+    private long maxBackoffMs;
+
+    public OptimisticRetry(PlatformTransactionManager transactionManager) {
+        // Each attempt must commit on its own, or a retry would reuse the failed transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public <T> T execute(TransactionCallback<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(action);
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("Giving up after {} optimistic lock failures: {}", attempt, e.getMessage());
+                    throw e;
+                }
+                long cap = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+                long backoff = ThreadLocalRandom.current().nextLong(cap + 1);
+                log.debug("Optimistic lock failure on attempt {}, retrying in {} ms", attempt, backoff);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /** Single attempt, for conditional updates where a conflict must reach the caller. */
+    public <T> T executeOnce(TransactionCallback<T> action) {
+        return transactionTemplate.execute(action);
+    }
+}
@@ -1,15 +1,23 @@
 package com.learn.inventory.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import com.learn.inventory.dto.BulkResult;
 import com.learn.inventory.entity.Product;
 
 public interface ProductService {
     List<Product> getAllProducts();
     Optional<Product> getProductById(Long id);
+    List<Product> getProductsByIds(Collection<Long> ids);
     Product createProduct(Product product);
     Product updateProduct(Long id, Product productDetails);
+    Product updateProduct(Long id, Product productDetails, Long expectedVersion);
     void deleteProduct(Long id);
     void updateStockQuantity(Long productId, Integer quantity);
+    BulkResult bulkUpsertProducts(InputStream body, String contentType) throws IOException;
+    BulkResult bulkAdjustStock(InputStream body, String contentType) throws IOException;
 }
\ No newline at end of file
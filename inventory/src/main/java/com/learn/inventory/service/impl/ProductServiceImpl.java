@@ -1,17 +1,28 @@
 package com.learn.inventory.service.impl;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import com.learn.inventory.bulk.ProductBulkLoader;
+import com.learn.inventory.dto.BulkResult;
 import com.learn.inventory.entity.Product;
+import com.learn.inventory.exception.StockNotEditableException;
+import com.learn.inventory.exception.VersionConflictException;
 import com.learn.inventory.repository.ProductRepository;
+import com.learn.inventory.retry.OptimisticRetry;
 import com.learn.inventory.service.ProductService;
+import com.learn.inventory.stock.StockLevelPublisher;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Slf4j
@@ -20,8 +31,12 @@ import org.springframework.transaction.annotation.Transactional;
 @AllArgsConstructor
 public class ProductServiceImpl implements ProductService{
     private final ProductRepository productRepository;
+    private final StockLevelPublisher stockLevelPublisher;
+    private final ProductBulkLoader productBulkLoader;
+    private final OptimisticRetry optimisticRetry;
 
     @Override
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
         log.info("Fetching All Products");
         List<Product> products = productRepository.findAll();
@@ -30,6 +45,7 @@ public class ProductServiceImpl implements ProductService{
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Product> getProductById(Long id) {
         log.info("Fetching product with id: {}", id);
         Optional<Product> product = productRepository.findById(id);
@@ -41,6 +57,15 @@ public class ProductServiceImpl implements ProductService{
         return product;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Product> getProductsByIds(Collection<Long> ids) {
+        log.info("Fetching {} products by id", ids.size());
+        List<Product> products = productRepository.findAllById(ids);
+        log.info("Found {} of {} requested products", products.size(), ids.size());
+        return products;
+    }
+
     @Override
     public Product createProduct(Product product) {
         log.info("Creating new product: {}", product.getName());
@@ -56,14 +81,37 @@ public class ProductServiceImpl implements ProductService{
         product.setUpdatedAt(LocalDateTime.now());
         
         Product savedProduct = productRepository.save(product);
+        stockLevelPublisher.stockChanged(savedProduct.getId());
         log.info("Product created successfully with id: {}", savedProduct.getId());
         return savedProduct;
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Product updateProduct(Long id, Product productDetails) {
-log.info("Updating product with id: {}", id);
-        
+        return updateProduct(id, productDetails, null);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Product updateProduct(Long id, Product productDetails, Long expectedVersion) {
+        log.info("Updating product with id: {} (expected version: {})", id, expectedVersion);
+
+        if (expectedVersion == null) {
+            // Unconditional edit: a lost version race is re-read and re-applied
+            return optimisticRetry.execute(status -> applyUpdate(id, productDetails, null));
+        }
+        try {
+            return optimisticRetry.executeOnce(status -> applyUpdate(id, productDetails, expectedVersion));
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Product with id: {} was modified concurrently, version {} is stale", id, expectedVersion);
+            // The version the attempt read is stale by now; read the winner's in another read-write (primary) transaction
+            Long currentVersion = optimisticRetry.executeOnce(status -> productRepository.findById(id).map(Product::getVersion).orElse(null));
+            throw new VersionConflictException("Product " + id + " was modified concurrently", currentVersion);
+        }
+    }
+
+    private Product applyUpdate(Long id, Product productDetails, Long expectedVersion) {
         Optional<Product> existingProduct = productRepository.findById(id);
         if (existingProduct.isEmpty()) {
             log.error("Product not found with id: {}", id);
@@ -71,6 +119,16 @@ log.info("Updating product with id: {}", id);
         }
         
         Product product = existingProduct.get();
+        if (expectedVersion != null && !expectedVersion.equals(product.getVersion())) {
+            log.warn("Product with id: {} is at version {}, update expected {}", id, product.getVersion(), expectedVersion);
+            throw new VersionConflictException("Product " + id + " is at version " + product.getVersion(), product.getVersion());
+        }
+
+        // stock_quantity is not updatable through the entity; a changed value would be dropped without a word
+        if (productDetails.getStockQuantity() != null && !productDetails.getStockQuantity().equals(product.getStockQuantity())) {
+            log.warn("Update of product {} tried to set stock {} (stored {})", id, productDetails.getStockQuantity(), product.getStockQuantity());
+            throw new StockNotEditableException("Stock of product " + id + " changes through POST /api/products/" + id + "/stock or /api/products/bulk/stock");
+        }
         
         // Check if name is being changed and if new name already exists
         if (!product.getName().equals(productDetails.getName())) {
@@ -81,10 +139,10 @@ log.info("Updating product with id: {}", id);
             }
         }
         
+        // Catalog fields only; stock moves through updateStockQuantity and the bulk stock endpoint
         product.setName(productDetails.getName());
         product.setDescription(productDetails.getDescription());
         product.setPrice(productDetails.getPrice());
-        product.setStockQuantity(productDetails.getStockQuantity());
         product.setCategory(productDetails.getCategory());
         product.setUpdatedAt(LocalDateTime.now());
         
@@ -103,6 +161,7 @@ log.info("Updating product with id: {}", id);
         }
         
         productRepository.deleteById(id);
+        stockLevelPublisher.productRemoved(id);
         log.info("Product deleted successfully with id: {}", id);
     }
 
@@ -110,25 +169,31 @@ log.info("Updating product with id: {}", id);
     public void updateStockQuantity(Long productId, Integer quantity) {
         log.info("Updating stock quantity for product id: {} by quantity: {}", productId, quantity);
         
-        Optional<Product> productOpt = productRepository.findById(productId);
-        if (productOpt.isEmpty()) {
-            log.error("Product not found with id: {}", productId);
-            throw new RuntimeException("Product not found with id: " + productId);
-        }
-        
-        Product product = productOpt.get();
-        int newStock = product.getStockQuantity() - quantity;
-        
-        if (newStock < 0) {
-            log.error("Insufficient stock for product: {}. Available: {}, Requested: {}", 
-                     product.getName(), product.getStockQuantity(), quantity);
-            throw new RuntimeException("Insufficient stock for product: " + product.getName());
+        // One conditional UPDATE instead of read-modify-write; it leaves the catalog version alone
+        if (productRepository.decrementStock(productId, quantity, LocalDateTime.now()) == 0) {
+            Optional<Integer> stock = productRepository.findStockQuantityById(productId);
+            if (stock.isEmpty()) {
+                log.error("Product not found with id: {}", productId);
+                throw new RuntimeException("Product not found with id: " + productId);
+            }
+            log.error("Insufficient stock for product id: {}. Available: {}, Requested: {}",
+                     productId, stock.get(), quantity);
+            throw new RuntimeException("Insufficient stock for product id: " + productId);
         }
+        stockLevelPublisher.stockChanged(productId);
         
-        product.setStockQuantity(newStock);
-        product.setUpdatedAt(LocalDateTime.now());
-        productRepository.save(product);
-        
-        log.info("Stock updated for product: {}. New stock: {}", product.getName(), newStock);
+        log.info("Stock updated for product id: {} by quantity: {}", productId, quantity);
+    }
+
+    @Override
+    public BulkResult bulkUpsertProducts(InputStream body, String contentType) throws IOException {
+        log.info("Bulk upserting products from {} body", contentType);
+        return productBulkLoader.upsertProducts(body, contentType);
+    }
+
+    @Override
+    public BulkResult bulkAdjustStock(InputStream body, String contentType) throws IOException {
+        log.info("Bulk adjusting stock from {} body", contentType);
+        return productBulkLoader.adjustStock(body, contentType);
     }
 }
@@ -0,0 +1,129 @@
+package com.learn.inventory.stock;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.learn.common.dto.StockLevelEvent;
+import com.learn.inventory.repository.ProductRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes the current stock of changed products to the log-compacted
+ * stock-levels topic, keyed by product id, so other services can keep a local
+ * view (see {@link com.learn.common.stock.StockLevelView}).
+ *
+ * Levels are read back after the writing transaction commits rather than taken
+ * from the entity, so a publish never carries uncommitted stock. Each level
+ * carries the row's {@code stock_version}, which every stock UPDATE increments
+ * in the same statement, so quantity and version always belong together and
+ * the view can tell a newer level from an older one regardless of the order
+ * publishes from different instances reach the topic. Reading and sending
+ * happen under one lock, so within this instance levels are sent in the order
+ * they were read.
+ */
+@Slf4j
+@Component
+public class StockLevelPublisher {
+    private static final int BULK_CHUNK_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final KafkaTemplate<String, StockLevelEvent> kafkaTemplate;
+    private final TransactionTemplate readTemplate;
+    private final Object publishLock = new Object();
+
+    @Value("${kafka.topic.stock-levels}")
+    private String stockLevelsTopic;
+
+    public StockLevelPublisher(ProductRepository productRepository,
+                               KafkaTemplate<String, StockLevelEvent> kafkaTemplate,
+                               PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        // Runs after the caller's commit, so it needs its own transaction; not readOnly, to stay off lagging replicas
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void stockChanged(Long productId) {
+        stockChanged(Set.of(productId));
+    }
+
+    public void stockChanged(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(productIds);
+        afterCommit(() -> publish(ids));
+    }
+
+    /** For bulk writes: publishes the given products, reading them back in chunks. */
+    public void stockChanged(long[] productIds) {
+        if (productIds.length == 0) {
+            return;
+        }
+        afterCommit(() -> publishBulk(productIds));
+    }
+
+    public void productRemoved(Long productId) {
+        afterCommit(() -> {
+            synchronized (publishLock) {
+                kafkaTemplate.send(stockLevelsTopic, productId.toString(), null);
+            }
+        });
+    }
+
+    private void publish(List<Long> productIds) {
+        synchronized (publishLock) {
+            publishLevels(productIds);
+        }
+    }
+
+    private void publishLevels(List<Long> productIds) {
+        try {
+            List<ProductRepository.StockLevel> levels = readTemplate.execute(status -> productRepository.findStockLevelsByIdIn(productIds));
+            for (ProductRepository.StockLevel level : levels) {
+                kafkaTemplate.send(stockLevelsTopic, level.getId().toString(),
+                        new StockLevelEvent(level.getId(), level.getStockQuantity(), level.getStockVersion()));
+            }
+            log.debug("Published stock levels for {} products", levels.size());
+        } catch (Exception e) {
+            // The database stays authoritative; the next change of these products republishes them
+            log.error("Failed to publish stock levels for products {}: {}", productIds, e.getMessage(), e);
+        }
+    }
+
+    private void publishBulk(long[] productIds) {
+        synchronized (publishLock) {
+            for (int from = 0; from < productIds.length; from += BULK_CHUNK_SIZE) {
+                int to = Math.min(from + BULK_CHUNK_SIZE, productIds.length);
+                publishLevels(Arrays.stream(productIds, from, to).boxed().toList());
+            }
+        }
+        log.info("Published stock levels for {} bulk-updated products", productIds.length);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.learn.inventory.stock;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.learn.inventory.repository.ProcessedOrderRepository;
+import com.learn.inventory.repository.ProductRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-combining stage for stock decrements coming from order events.
+ * Decrements are reserved per product against the stock seen at the start of
+ * the flush window and written as one net conditional UPDATE per product when
+ * the window is flushed, instead of one read-modify-write per event.
+ *
+ * The window is one Kafka poll: {@link com.learn.inventory.kafka.OrderEventConsumer}
+ * opens a {@link Batch} per poll, records it, flushes and only then acknowledges
+ * it. Its count and time bounds are the consumer's max-poll-records and
+ * fetch-max-wait rather than separate aggregator settings: a window spanning
+ * polls would either acknowledge offsets whose decrements are not written yet,
+ * losing them on a crash, or have to track offsets across polls and hold back
+ * acknowledgments, which the batch listener does not do. Each batch belongs to
+ * the listener thread that opened it, so with several listener containers one
+ * never commits decrements another has not acknowledged yet. A failed flush
+ * writes nothing, so the redelivered batch is simply recorded again.
+ *
+ * Decrements are idempotent per order: the flush records the batch's order ids
+ * in {@code processed_orders} in the same transaction and drops the
+ * reservations of orders that were already applied, so an event that the order
+ * service republishes (or Kafka redelivers after a commit) is applied once.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StockWriteAggregator {
+    private final ProductRepository productRepository;
+    private final ProcessedOrderRepository processedOrderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final StockLevelPublisher stockLevelPublisher;
+
+    @Value("${inventory.processed-orders.retention-hours:168}")
+    private long processedOrderRetentionHours;
+
+    /**
+     * Opens the write window for one poll. Not thread-safe: use it from the
+     * listener thread that polled the records.
+     */
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.processed-orders.purge-interval-ms:3600000}")
+    public void purgeProcessedOrders() {
+        int purged = processedOrderRepository.deleteProcessedBefore(LocalDateTime.now().minusHours(processedOrderRetentionHours));
+        if (purged > 0) {
+            log.info("Purged {} processed order ids", purged);
+        }
+    }
+
+    public final class Batch {
+        private final Map<Long, Accumulator> pending = new HashMap<>();
+        // Sorted, so concurrent flushes claiming overlapping ids lock them in the same order
+        private final Set<Long> orders = new TreeSet<>();
+
+        private Batch() {
+        }
+
+        /**
+         * Starts recording an order's items. Returns false if the order is
+         * already part of this window, in which case its items must be skipped.
+         */
+        public boolean startOrder(Long orderId) {
+            return orders.add(orderId);
+        }
+
+        /**
+         * Reserves {@code quantity} units of the product for the order in this window.
+         * Throws if the reservation would exceed the stock available to the window.
+         */
+        public void record(Long orderId, Long productId, int quantity) {
+            Accumulator accumulator = pending.get(productId);
+            if (accumulator == null) {
+                Integer stock = productRepository.findStockQuantityById(productId)
+                        .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+                accumulator = new Accumulator(stock);
+                pending.put(productId, accumulator);
+            }
+            accumulator.reserve(orderId, productId, quantity);
+        }
+
+        /**
+         * Writes all reserved decrements of orders not applied before, one UPDATE per
+         * product, in a single transaction together with the order ids. Returns only
+         * once they are committed, so callers can acknowledge their input afterwards.
+         */
+        public void flush() {
+            if (orders.isEmpty()) {
+                return;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            Set<Long> changed = new HashSet<>();
+            int[] events = new int[1];
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<Long> newOrders = new HashSet<>(processedOrderRepository.claim(orders, now));
+                if (newOrders.size() < orders.size()) {
+                    log.info("Skipping {} orders whose stock was already applied", orders.size() - newOrders.size());
+                }
+                pending.forEach((productId, accumulator) -> {
+                    List<Integer> quantities = accumulator.quantitiesOf(newOrders);
+                    if (quantities.isEmpty()) {
+                        return;
+                    }
+                    int total = quantities.stream().mapToInt(Integer::intValue).sum();
+                    events[0] += quantities.size();
+                    changed.add(productId);
+                    if (productRepository.decrementStock(productId, total, now) == 1) {
+                        log.debug("Flushed net stock decrement for product: {}, quantity: {}, events: {}",
+                                productId, total, quantities.size());
+                        return;
+                    }
+                    // Stock moved underneath the window (e.g. another batch or a manual adjustment);
+                    // apply what still fits one by one
+                    log.warn("Net decrement of {} no longer fits stock for product: {}, applying {} events individually",
+                            total, productId, quantities.size());
+                    for (Integer quantity : quantities) {
+                        if (productRepository.decrementStock(productId, quantity, now) == 0) {
+                            log.error("Insufficient stock for product: {}. Requested: {}", productId, quantity);
+                        }
+                    }
+                });
+            });
+            // Committed by now, so the levels are published right away
+            stockLevelPublisher.stockChanged(changed);
+            log.info("Flushed {} stock events as {} product updates", events[0], changed.size());
+            pending.clear();
+            orders.clear();
+        }
+    }
+
+    private static final class Accumulator {
+        private final int headroom;
+        private final List<Reservation> reservations = new ArrayList<>();
+        private int reserved;
+
+        private Accumulator(int headroom) {
+            this.headroom = headroom;
+        }
+
+        void reserve(Long orderId, Long productId, int quantity) {
+            if (reserved + quantity > headroom) {
+                log.error("Insufficient stock for product: {}. Available: {}, Requested: {}",
+                        productId, headroom - reserved, quantity);
+                throw new RuntimeException("Insufficient stock for product id: " + productId);
+            }
+            reserved += quantity;
+            reservations.add(new Reservation(orderId, quantity));
+        }
+
+        List<Integer> quantitiesOf(Set<Long> orderIds) {
+            return reservations.stream()
+                    .filter(reservation -> orderIds.contains(reservation.orderId()))
+                    .map(Reservation::quantity)
+                    .toList();
+        }
+    }
+
+    private record Reservation(Long orderId, int quantity) {
+    }
+}
@@ -0,0 +1,146 @@
+package com.learn.inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.learn.inventory.entity.Product;
+import com.learn.inventory.exception.StockNotEditableException;
+import com.learn.inventory.exception.VersionConflictException;
+import com.learn.inventory.service.ProductService;
+
+/**
+ * Hammers one product with stock decrements and catalog edits at the same
+ * time and checks that neither kind of write is lost. Runs against a
+ * PostgreSQL container and an embedded Kafka broker for the stock-level
+ * publishes.
+ */
+@SpringBootTest(properties = {
+		"inventory.optimistic-retry.max-attempts=50",
+		"logging.level.org.springframework.kafka=INFO",
+		"logging.level.org.hibernate.SQL=INFO",
+		"logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO" })
+@EmbeddedKafka(bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+@Testcontainers
+class ProductConcurrencyStressTest {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductConcurrencyStressTest.class);
+
+	private static final int INITIAL_STOCK = 1_000_000;
+	private static final int DECREMENT_THREADS = 8;
+	private static final int DECREMENTS_PER_THREAD = 250;
+	private static final int EDIT_THREADS = 4;
+	private static final int EDITS_PER_THREAD = 50;
+
+	@Container
+	@ServiceConnection
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+	@Autowired
+	private ProductService productService;
+
+	@Test
+	void concurrentDecrementsAndEditsLoseNoUpdates() throws Exception {
+		Product product = new Product();
+		product.setName("stress-" + System.nanoTime());
+		product.setDescription("initial");
+		product.setPrice(new BigDecimal("9.99"));
+		product.setStockQuantity(INITIAL_STOCK);
+		product.setCategory("Stress");
+		Long id = productService.createProduct(product).getId();
+
+		ExecutorService pool = Executors.newFixedThreadPool(DECREMENT_THREADS + EDIT_THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger edits = new AtomicInteger();
+		List<Future<?>> workers = new ArrayList<>();
+		try {
+			for (int t = 0; t < DECREMENT_THREADS; t++) {
+				workers.add(pool.submit(() -> {
+					start.await();
+					for (int i = 0; i < DECREMENTS_PER_THREAD; i++) {
+						productService.updateStockQuantity(id, 1);
+					}
+					return null;
+				}));
+			}
+			for (int t = 0; t < EDIT_THREADS; t++) {
+				int thread = t;
+				workers.add(pool.submit(() -> {
+					start.await();
+					for (int i = 0; i < EDITS_PER_THREAD; i++) {
+						Product details = new Product();
+						details.setName(product.getName());
+						details.setDescription("edit " + thread + "-" + i);
+						details.setPrice(product.getPrice());
+						details.setCategory(product.getCategory());
+						productService.updateProduct(id, details);
+						edits.incrementAndGet();
+					}
+					return null;
+				}));
+			}
+
+			long begin = System.nanoTime();
+			start.countDown();
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+			double seconds = (System.nanoTime() - begin) / 1e9;
+
+			int decrements = DECREMENT_THREADS * DECREMENTS_PER_THREAD;
+			log.info("{} decrements and {} edits on one product in {} s ({} ops/s)", decrements, edits.get(),
+					String.format("%.2f", seconds), String.format("%.0f", (decrements + edits.get()) / seconds));
+
+			Product result = productService.getProductById(id).orElseThrow();
+			// Every decrement landed even though edits rewrote the row concurrently
+			assertEquals(INITIAL_STOCK - decrements, result.getStockQuantity());
+			// Every edit was applied exactly once: one version step each, none for stock changes
+			assertEquals(EDIT_THREADS * EDITS_PER_THREAD, edits.get());
+			assertEquals((long) edits.get(), result.getVersion());
+
+			Product stale = new Product();
+			stale.setName(product.getName());
+			stale.setDescription("stale");
+			stale.setPrice(product.getPrice());
+			stale.setCategory(product.getCategory());
+			VersionConflictException conflict = assertThrows(VersionConflictException.class,
+					() -> productService.updateProduct(id, stale, 0L));
+			// The rejected attempt reports the version it found, which the controller returns as the ETag
+			assertEquals(result.getVersion(), conflict.getCurrentVersion());
+
+			Product restock = new Product();
+			restock.setName(product.getName());
+			restock.setDescription("restock");
+			restock.setPrice(product.getPrice());
+			restock.setStockQuantity(INITIAL_STOCK);
+			restock.setCategory(product.getCategory());
+			// A catalog edit carrying a new quantity is rejected rather than dropping the quantity
+			assertThrows(StockNotEditableException.class, () -> productService.updateProduct(id, restock));
+			assertEquals(result.getStockQuantity(), productService.getProductById(id).orElseThrow().getStockQuantity());
+			restock.setStockQuantity(result.getStockQuantity());
+			assertEquals("restock", productService.updateProduct(id, restock).getDescription());
+		} finally {
+			pool.shutdownNow();
+			productService.deleteProduct(id);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.learn.inventory.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class BulkRecordReaderTest {
+
+	@Test
+	void csvRecordsAreKeyedByTrimmedHeader() throws IOException {
+		try (BulkRecordReader reader = open("id, name ,price\n1,Laptop,9.99\n,Mug,1.00\n", BulkRecordReader.CSV)) {
+			assertEquals(Map.of("id", "1", "name", "Laptop", "price", "9.99"), reader.next());
+			assertEquals(2, reader.lineNumber());
+
+			Map<String, String> second = reader.next();
+			assertTrue(second.containsKey("id"));
+			assertNull(second.get("id"));
+			assertEquals("Mug", second.get("name"));
+			assertEquals(3, reader.lineNumber());
+
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void csvQuotedFieldsKeepSeparatorsQuotesAndLineBreaks() throws IOException {
+		String body = "name,description\n"
+				+ "\"Desk, oak\",\"The \"\"big\"\" one\nwith drawers\"\n"
+				+ "Chair,plain\n";
+		try (BulkRecordReader reader = open(body, BulkRecordReader.CSV)) {
+			assertEquals(Map.of("name", "Desk, oak", "description", "The \"big\" one\nwith drawers"), reader.next());
+			assertEquals(2, reader.lineNumber());
+
+			assertEquals(Map.of("name", "Chair", "description", "plain"), reader.next());
+			assertEquals(4, reader.lineNumber());
+		}
+	}
+
+	@Test
+	void csvAcceptsCrLfAndMissingTrailingNewline() throws IOException {
+		try (BulkRecordReader reader = open("name,price\r\nA,1\r\nB,2", BulkRecordReader.CSV)) {
+			assertEquals(Map.of("name", "A", "price", "1"), reader.next());
+			assertEquals(Map.of("name", "B", "price", "2"), reader.next());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void csvSkipsBlankLines() throws IOException {
+		try (BulkRecordReader reader = open("name\n\nA\n\n", BulkRecordReader.CSV)) {
+			assertEquals(Map.of("name", "A"), reader.next());
+			assertEquals(3, reader.lineNumber());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void csvRowWithWrongColumnCountIsRejectedAndReadingContinues() throws IOException {
+		try (BulkRecordReader reader = open("a,b\n1\n2,3\n", BulkRecordReader.CSV)) {
+			IllegalArgumentException e = assertThrows(IllegalArgumentException.class, reader::next);
+			assertEquals("expected 2 columns but found 1", e.getMessage());
+			assertEquals(2, reader.lineNumber());
+
+			assertEquals(Map.of("a", "2", "b", "3"), reader.next());
+			assertEquals(3, reader.lineNumber());
+		}
+	}
+
+	@Test
+	void csvUnterminatedQuoteIsRejected() throws IOException {
+		try (BulkRecordReader reader = open("a\n\"open\n", BulkRecordReader.CSV)) {
+			IllegalArgumentException e = assertThrows(IllegalArgumentException.class, reader::next);
+			assertEquals("unterminated quoted field", e.getMessage());
+		}
+	}
+
+	@Test
+	void csvRequiresHeader() {
+		assertThrows(IllegalArgumentException.class, () -> open("", BulkRecordReader.CSV));
+	}
+
+	@Test
+	void ndjsonObjectsAreReadAsText() throws IOException {
+		String body = "{\"id\":1,\"name\":\"Mug\",\"price\":9.5,\"description\":null}\n\n{\"name\":\"Cup\"}\n";
+		try (BulkRecordReader reader = open(body, BulkRecordReader.NDJSON)) {
+			Map<String, String> expected = new HashMap<>();
+			expected.put("id", "1");
+			expected.put("name", "Mug");
+			expected.put("price", "9.5");
+			expected.put("description", null);
+			assertEquals(expected, reader.next());
+			assertEquals(1, reader.lineNumber());
+
+			assertEquals(Map.of("name", "Cup"), reader.next());
+			assertEquals(3, reader.lineNumber());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void ndjsonInvalidLinesAreRejectedAndReadingContinues() throws IOException {
+		try (BulkRecordReader reader = open("not json\n[1,2]\n{\"name\":\"A\"}\n", BulkRecordReader.NDJSON)) {
+			IllegalArgumentException invalid = assertThrows(IllegalArgumentException.class, reader::next);
+			assertTrue(invalid.getMessage().startsWith("invalid JSON"), invalid.getMessage());
+			IllegalArgumentException notObject = assertThrows(IllegalArgumentException.class, reader::next);
+			assertEquals("expected a JSON object", notObject.getMessage());
+
+			assertEquals(Map.of("name", "A"), reader.next());
+			assertEquals(3, reader.lineNumber());
+		}
+	}
+
+	@Test
+	void contentTypeParametersAreIgnoredAndUnknownTypesRejected() throws IOException {
+		try (BulkRecordReader reader = open("name\nA\n", "text/csv; charset=UTF-8")) {
+			assertEquals(Map.of("name", "A"), reader.next());
+		}
+		assertThrows(IllegalArgumentException.class, () -> open("<products/>", "application/xml"));
+	}
+
+	private static BulkRecordReader open(String body, String contentType) throws IOException {
+		return BulkRecordReader.open(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), contentType);
+	}
+}
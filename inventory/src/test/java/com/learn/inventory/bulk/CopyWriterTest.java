@@ -0,0 +1,124 @@
+package com.learn.inventory.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Checks the CSV that {@link CopyWriter} hands to {@code COPY ... WITH (FORMAT csv)}:
+ * NULL versus empty string, quoting of special characters, and buffering.
+ */
+class CopyWriterTest {
+
+	private final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+	private final List<String> calls = new ArrayList<>();
+	private boolean active = true;
+
+	private final CopyIn copyIn = (CopyIn) Proxy.newProxyInstance(CopyIn.class.getClassLoader(), new Class<?>[] { CopyIn.class },
+			(proxy, method, args) -> {
+				calls.add(method.getName());
+				switch (method.getName()) {
+				case "writeToCopy":
+					copied.write((byte[]) args[0], (int) args[1], (int) args[2]);
+					return null;
+				case "endCopy":
+					active = false;
+					return 0L;
+				case "cancelCopy":
+					active = false;
+					return null;
+				case "isActive":
+					return active;
+				default:
+					return null;
+				}
+			});
+
+	private final CopyWriter writer = new CopyWriter(copyIn);
+
+	@Test
+	void plainValuesAreWrittenUnquoted() throws Exception {
+		writer.row(7L, "Laptop", new BigDecimal("999.99"), 50);
+
+		assertEquals(1, writer.finish());
+		assertEquals("7,Laptop,999.99,50\n", copied());
+		assertTrue(calls.contains("endCopy"));
+	}
+
+	@Test
+	void nullIsAnUnquotedEmptyField() throws Exception {
+		writer.row(1L, null, "x");
+		writer.finish();
+
+		assertEquals("1,,x\n", copied());
+	}
+
+	@Test
+	void emptyStringIsQuotedSoItDoesNotBecomeNull() throws Exception {
+		writer.row(1L, "");
+		writer.finish();
+
+		assertEquals("1,\"\"\n", copied());
+	}
+
+	@Test
+	void specialCharactersAreQuotedAndQuotesDoubled() throws Exception {
+		writer.row("a,b", "say \"hi\"", "two\nlines", "cr\rhere", "back\\slash");
+		writer.finish();
+
+		assertEquals("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",\"cr\rhere\",\"back\\slash\"\n", copied());
+	}
+
+	@Test
+	void endOfDataMarkerIsQuoted() throws Exception {
+		writer.row("\\.");
+		writer.finish();
+
+		assertEquals("\"\\.\"\n", copied());
+	}
+
+	@Test
+	void textIsWrittenAsUtf8() throws Exception {
+		writer.row("Caf\u00e9 \u2615");
+		writer.finish();
+
+		assertEquals("Caf\u00e9 \u2615\n", copied());
+	}
+
+	@Test
+	void largeInputIsFlushedInChunksBeforeFinish() throws Exception {
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 20_000; i++) {
+			writer.row(i, "product-" + i);
+			expected.append(i).append(",product-").append(i).append('\n');
+		}
+		long writesBeforeFinish = calls.stream().filter("writeToCopy"::equals).count();
+
+		assertEquals(20_000, writer.finish());
+		assertTrue(writesBeforeFinish > 1, "rows were buffered instead of streamed");
+		assertEquals(expected.toString(), copied());
+	}
+
+	@Test
+	void cancelAbortsAnActiveCopyOnce() {
+		writer.cancel();
+		writer.cancel();
+
+		assertEquals(1, calls.stream().filter("cancelCopy"::equals).count());
+		assertFalse(calls.contains("endCopy"));
+	}
+
+	private String copied() {
+		return copied.toString(StandardCharsets.UTF_8);
+	}
+}
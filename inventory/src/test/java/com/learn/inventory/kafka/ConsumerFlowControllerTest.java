@@ -0,0 +1,298 @@
+package com.learn.inventory.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.learn.common.dto.OrderCreatedEvent;
+import com.learn.inventory.entity.Product;
+import com.learn.inventory.repository.ProductRepository;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Floods the order-created listener while every statement against the
+ * database is artificially slowed down. The flow controller has to shrink the
+ * batches (and pause when the pool saturates) so that each poll stays well
+ * inside max.poll.interval.ms: the group must not rebalance and every event
+ * must still be applied exactly once.
+ */
+@SpringBootTest(properties = {
+		"spring.kafka.listener.concurrency=3",
+		"spring.kafka.consumer.properties.max.poll.interval.ms=" + ConsumerFlowControllerTest.MAX_POLL_INTERVAL_MS,
+		"spring.datasource.hikari.maximum-pool-size=2",
+		"inventory.flow-control.interval-ms=100",
+		"inventory.flow-control.pause-pending-threads=1",
+		"inventory.flow-control.max-event-latency-ms=5",
+		"inventory.flow-control.target-event-latency-ms=2",
+		"inventory.flow-control.min-batch-size=5",
+		"inventory.flow-control.max-batch-size=" + ConsumerFlowControllerTest.MAX_BATCH_SIZE,
+		"inventory.flow-control.batch-size-step=5",
+		"logging.level.org.springframework.kafka=INFO",
+		"logging.level.org.hibernate.SQL=INFO",
+		"logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO" })
+@EmbeddedKafka(partitions = ConsumerFlowControllerTest.PARTITIONS, topics = "order-created",
+		bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+@Testcontainers
+class ConsumerFlowControllerTest {
+
+	static final int PARTITIONS = 3;
+	static final int MAX_POLL_INTERVAL_MS = 5000;
+	static final int MAX_BATCH_SIZE = 100;
+
+	private static final int PRODUCTS = 200;
+	private static final int EVENTS = 2000;
+	private static final int INITIAL_STOCK = 1_000;
+	private static final long STATEMENT_DELAY_MS = 10;
+
+	@Container
+	@ServiceConnection
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private KafkaListenerEndpointRegistry registry;
+
+	@Autowired
+	private ConsumerFlowController flowController;
+
+	@Autowired
+	private ListenerProbe probe;
+
+	@Autowired
+	private EmbeddedKafkaBroker broker;
+
+	@Value("${kafka.topic.order-created}")
+	private String topic;
+
+	@AfterEach
+	void restoreDatabaseSpeed() {
+		SlowDataSource.statementDelayMs = 0;
+	}
+
+	@Test
+	void slowDatabaseThrottlesConsumptionWithoutRebalancing() throws Exception {
+		String prefix = "flow-" + System.nanoTime() + "-";
+		List<Product> products = productRepository.saveAll(IntStream.range(0, PRODUCTS)
+				.mapToObj(i -> product(prefix + i))
+				.toList());
+		ContainerTestUtils.waitForAssignment(registry.getListenerContainer(ConsumerFlowController.LISTENER_ID), PARTITIONS);
+		int revocationsBefore = probe.revocations.get();
+
+		SlowDataSource.statementDelayMs = STATEMENT_DELAY_MS;
+		// Adds type headers like the order service does, the listener's JsonDeserializer relies on them
+		Map<String, Object> producerProps = KafkaTestUtils.producerProps(broker);
+		producerProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+		DefaultKafkaProducerFactory<String, OrderCreatedEvent> producerFactory =
+				new DefaultKafkaProducerFactory<>(producerProps, new StringSerializer(), new JsonSerializer<>());
+		try {
+			KafkaTemplate<String, OrderCreatedEvent> template = new KafkaTemplate<>(producerFactory);
+			for (int i = 0; i < EVENTS; i++) {
+				template.send(topic, String.valueOf(i), orderCreated(i, products.get(i % PRODUCTS).getId()));
+			}
+			template.flush();
+		} finally {
+			producerFactory.destroy();
+		}
+
+		long expectedStock = (long) PRODUCTS * INITIAL_STOCK - EVENTS;
+		int smallestBatchLimit = Integer.MAX_VALUE;
+		long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(3);
+		while (totalStock(prefix) != expectedStock) {
+			smallestBatchLimit = Math.min(smallestBatchLimit, flowController.batchLimit());
+			if (System.nanoTime() > deadline) {
+				fail("Only " + (PRODUCTS * (long) INITIAL_STOCK - totalStock(prefix)) + " of " + EVENTS + " events applied");
+			}
+			Thread.sleep(100);
+		}
+
+		assertEquals(revocationsBefore, probe.revocations.get(), "consumer group rebalanced while the database was slow");
+		assertTrue(smallestBatchLimit < MAX_BATCH_SIZE, "flow control never reduced the batch limit");
+		long slowestBatchMs = TimeUnit.NANOSECONDS.toMillis(probe.slowestBatchNanos.get());
+		assertTrue(slowestBatchMs < MAX_POLL_INTERVAL_MS / 2,
+				"slowest batch took " + slowestBatchMs + " ms, too close to max.poll.interval.ms");
+	}
+
+	private long totalStock(String prefix) {
+		Long total = jdbcTemplate.queryForObject(
+				"SELECT SUM(stock_quantity) FROM products WHERE name LIKE ?", Long.class, prefix + "%");
+		return total != null ? total : 0;
+	}
+
+	private static Product product(String name) {
+		Product product = new Product();
+		product.setName(name);
+		product.setDescription("flow control test product");
+		product.setPrice(new BigDecimal("1.00"));
+		product.setStockQuantity(INITIAL_STOCK);
+		product.setCategory("Test");
+		return product;
+	}
+
+	private static OrderCreatedEvent orderCreated(long orderId, Long productId) {
+		OrderCreatedEvent.OrderItemEvent item = new OrderCreatedEvent.OrderItemEvent(productId, "Product " + productId, 1, null, null);
+		return new OrderCreatedEvent(orderId, "Flow Test", "flow@test.local", "PENDING", null, LocalDateTime.now(), List.of(item));
+	}
+
+	/** Counts rebalances and times each batch handed to the listener. */
+	static class ListenerProbe {
+		final AtomicInteger revocations = new AtomicInteger();
+		final AtomicLong slowestBatchNanos = new AtomicLong();
+		private final ThreadLocal<Long> batchStart = new ThreadLocal<>();
+
+		void batchStarted() {
+			batchStart.set(System.nanoTime());
+		}
+
+		void batchFinished() {
+			Long start = batchStart.get();
+			if (start != null) {
+				slowestBatchNanos.accumulateAndGet(System.nanoTime() - start, Math::max);
+			}
+		}
+	}
+
+	/** Sleeps before preparing every statement while a delay is set, holding the pooled connection. */
+	static class SlowDataSource extends DelegatingDataSource {
+		static volatile long statementDelayMs;
+
+		SlowDataSource(DataSource target) {
+			super(target);
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return slow(super.getConnection());
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return slow(super.getConnection(username, password));
+		}
+
+		private static Connection slow(Connection connection) {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+					(proxy, method, args) -> {
+						long delay = statementDelayMs;
+						if (delay > 0 && (method.getName().startsWith("prepare") || method.getName().equals("createStatement"))) {
+							Thread.sleep(delay);
+						}
+						try {
+							return method.invoke(connection, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+	}
+
+	@TestConfiguration
+	static class FlowControlTestConfig {
+
+		// Wraps the Hikari pool; unwrap(HikariDataSource.class) still reaches it for the pool metrics
+		@Bean
+		static BeanPostProcessor slowDataSourcePostProcessor() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					return bean instanceof HikariDataSource pool ? new SlowDataSource(pool) : bean;
+				}
+			};
+		}
+
+		@Bean
+		ListenerProbe listenerProbe() {
+			return new ListenerProbe();
+		}
+
+		@Bean
+		ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>> probeCustomizer(ListenerProbe probe) {
+			return container -> {
+				container.getContainerProperties().setConsumerRebalanceListener(new ConsumerRebalanceListener() {
+					@Override
+					public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+						if (!partitions.isEmpty()) {
+							probe.revocations.incrementAndGet();
+						}
+					}
+
+					@Override
+					public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+					}
+				});
+				container.setBatchInterceptor(new BatchInterceptor<>() {
+					@Override
+					public ConsumerRecords<Object, Object> intercept(ConsumerRecords<Object, Object> records,
+							Consumer<Object, Object> consumer) {
+						probe.batchStarted();
+						return records;
+					}
+
+					@Override
+					public void success(ConsumerRecords<Object, Object> records, Consumer<Object, Object> consumer) {
+						probe.batchFinished();
+					}
+
+					@Override
+					public void failure(ConsumerRecords<Object, Object> records, Exception exception,
+							Consumer<Object, Object> consumer) {
+						probe.batchFinished();
+					}
+				});
+			};
+		}
+	}
+}
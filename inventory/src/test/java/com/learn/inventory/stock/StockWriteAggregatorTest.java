@@ -0,0 +1,141 @@
+package com.learn.inventory.stock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.learn.inventory.repository.ProcessedOrderRepository;
+import com.learn.inventory.repository.ProductRepository;
+
+class StockWriteAggregatorTest {
+
+	private final ProductRepository productRepository = mock(ProductRepository.class);
+	private final ProcessedOrderRepository processedOrderRepository = mock(ProcessedOrderRepository.class);
+	private final StockLevelPublisher stockLevelPublisher = mock(StockLevelPublisher.class);
+
+	private final Set<Long> claimed = new HashSet<>();
+
+	private StockWriteAggregator aggregator;
+
+	@BeforeEach
+	void setUp() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+		aggregator = new StockWriteAggregator(productRepository, processedOrderRepository, transactionTemplate,
+				stockLevelPublisher);
+		when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10));
+		when(productRepository.findStockQuantityById(2L)).thenReturn(Optional.of(5));
+	}
+
+	@Test
+	void writesOneNetDecrementPerProduct() {
+		claimNewOrders(100L, 101L);
+		when(productRepository.decrementStock(anyLong(), anyInt(), any())).thenReturn(1);
+
+		StockWriteAggregator.Batch batch = aggregator.newBatch();
+		batch.startOrder(100L);
+		batch.record(100L, 1L, 2);
+		batch.record(100L, 2L, 1);
+		batch.startOrder(101L);
+		batch.record(101L, 1L, 3);
+		batch.flush();
+
+		verify(productRepository).decrementStock(eq(1L), eq(5), any(LocalDateTime.class));
+		verify(productRepository).decrementStock(eq(2L), eq(1), any(LocalDateTime.class));
+		verify(productRepository, never()).decrementStock(eq(1L), eq(2), any());
+		verify(productRepository, never()).decrementStock(eq(1L), eq(3), any());
+		verify(stockLevelPublisher).stockChanged(Set.of(1L, 2L));
+	}
+
+	@Test
+	void appliesEventsOneByOneWhenNetDecrementNoLongerFits() {
+		claimNewOrders(100L, 101L);
+		when(productRepository.decrementStock(eq(1L), eq(5), any())).thenReturn(0);
+		when(productRepository.decrementStock(eq(1L), eq(2), any())).thenReturn(1);
+		when(productRepository.decrementStock(eq(1L), eq(3), any())).thenReturn(0);
+
+		StockWriteAggregator.Batch batch = aggregator.newBatch();
+		batch.startOrder(100L);
+		batch.record(100L, 1L, 2);
+		batch.startOrder(101L);
+		batch.record(101L, 1L, 3);
+		batch.flush();
+
+		verify(productRepository).decrementStock(eq(1L), eq(5), any());
+		verify(productRepository).decrementStock(eq(1L), eq(2), any());
+		verify(productRepository).decrementStock(eq(1L), eq(3), any());
+		verify(stockLevelPublisher).stockChanged(Set.of(1L));
+	}
+
+	@Test
+	void skipsOrdersThatWereAlreadyProcessed() {
+		claimNewOrders(101L);
+		when(productRepository.decrementStock(anyLong(), anyInt(), any())).thenReturn(1);
+
+		StockWriteAggregator.Batch batch = aggregator.newBatch();
+		batch.startOrder(100L);
+		batch.record(100L, 1L, 2);
+		batch.record(100L, 2L, 1);
+		batch.startOrder(101L);
+		batch.record(101L, 1L, 3);
+		batch.flush();
+
+		assertEquals(Set.of(100L, 101L), claimed);
+		verify(productRepository).decrementStock(eq(1L), eq(3), any());
+		verify(productRepository, never()).decrementStock(eq(2L), anyInt(), any());
+		verify(stockLevelPublisher).stockChanged(Set.of(1L));
+	}
+
+	@Test
+	void skipsRepeatedOrderWithinBatch() {
+		StockWriteAggregator.Batch batch = aggregator.newBatch();
+
+		assertTrue(batch.startOrder(100L));
+		assertFalse(batch.startOrder(100L));
+	}
+
+	@Test
+	void rejectsReservationBeyondStock() {
+		StockWriteAggregator.Batch batch = aggregator.newBatch();
+		batch.startOrder(100L);
+		batch.record(100L, 2L, 4);
+
+		assertThrows(RuntimeException.class, () -> batch.record(100L, 2L, 2));
+	}
+
+	@Test
+	void flushWithoutOrdersWritesNothing() {
+		aggregator.newBatch().flush();
+
+		verifyNoInteractions(processedOrderRepository, stockLevelPublisher);
+	}
+
+	private void claimNewOrders(Long... orderIds) {
+		when(processedOrderRepository.claim(anyCollection(), any())).thenAnswer(invocation -> {
+			// The batch clears its order ids after flushing, so keep a copy
+			claimed.addAll(invocation.getArgument(0));
+			return List.of(orderIds);
+		});
+	}
+}
@@ -2,8 +2,17 @@ package com.learn.order;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.learn.common.datasource.DataSourceRoutingConfig;
+import com.learn.order.config.OrderRuntimeHints;
 
 @SpringBootApplication
+@EnableScheduling
+@Import(DataSourceRoutingConfig.class)
+@ImportRuntimeHints(OrderRuntimeHints.class)
 public class OrderApplication {
 
 	public static void main(String[] args) {
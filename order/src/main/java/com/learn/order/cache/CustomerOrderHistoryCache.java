@@ -0,0 +1,183 @@
+package com.learn.order.cache;
+
+import com.learn.order.dto.OrderSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-customer order history read model. Holds the newest order summaries of
+ * the most recently active customers (LRU-bounded) and is kept current by the
+ * order write paths, which apply their changes once the transaction commits.
+ *
+ * A fill that raced with a committed write for the same customer is not kept,
+ * and entries expire after {@code orders.history-cache.ttl-seconds} so writes
+ * made through other replicas show up within that window. Status changes that
+ * bypass the entity go through {@code OrderService.updatePendingStatus}, which
+ * invalidates the customers they touched.
+ */
+@Component
+@Slf4j
+public class CustomerOrderHistoryCache {
+
+    private static final Comparator<OrderSummary> NEWEST_FIRST =
+            Comparator.comparing(OrderSummary::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                    .thenComparing(OrderSummary::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    // Write counters striped by customer; a collision only costs a skipped fill
+    private static final int WRITE_STRIPES = 1024;
+
+    private final int maxOrdersPerCustomer;
+    private final long ttlNanos;
+    private final Map<String, CustomerHistory> customers;
+    private final AtomicLongArray writes = new AtomicLongArray(WRITE_STRIPES);
+
+    public CustomerOrderHistoryCache(@Value("${orders.history-cache.max-customers:10000}") int maxCustomers,
+                                     @Value("${orders.history-cache.max-orders-per-customer:200}") int maxOrdersPerCustomer,
+                                     @Value("${orders.history-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.maxOrdersPerCustomer = maxOrdersPerCustomer;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.customers = Collections.synchronizedMap(new LinkedHashMap<String, CustomerHistory>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CustomerHistory> eldest) {
+                return size() > maxCustomers;
+            }
+        });
+    }
+
+    public int getMaxOrdersPerCustomer() {
+        return maxOrdersPerCustomer;
+    }
+
+    public Optional<CustomerHistory> get(String customerEmail) {
+        CustomerHistory history = customers.get(customerEmail);
+        if (history != null && System.nanoTime() - history.loadedAt > ttlNanos) {
+            customers.remove(customerEmail, history);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(history);
+    }
+
+    /**
+     * Taken before querying the database for a cold customer and handed back to
+     * {@link #load}, which uses it to detect writes committed in between.
+     */
+    public long loadStamp(String customerEmail) {
+        return writes.get(stripe(customerEmail));
+    }
+
+    /**
+     * Stores the newest-first summaries loaded for a cold customer. {@code truncated}
+     * means older orders exist in the database beyond what is kept here. The
+     * summaries are returned but not kept if a write for the customer committed
+     * since {@code stamp} was taken, as they may predate it.
+     */
+    public CustomerHistory load(String customerEmail, List<OrderSummary> newestFirst, boolean truncated, long stamp) {
+        CustomerHistory history = new CustomerHistory(new ArrayList<>(newestFirst), truncated, System.nanoTime());
+        CustomerHistory existing = customers.putIfAbsent(customerEmail, history);
+        if (existing != null) {
+            return existing;
+        }
+        // Checked after publishing: a write that bumps the counter later also finds the entry and applies itself
+        if (writes.get(stripe(customerEmail)) != stamp) {
+            log.debug("Order history for customer: {} changed while loading, not caching it", customerEmail);
+            customers.remove(customerEmail, history);
+        }
+        return history;
+    }
+
+    public void orderSaved(String customerEmail, OrderSummary summary) {
+        afterCommit(() -> {
+            writes.incrementAndGet(stripe(customerEmail));
+            get(customerEmail).ifPresent(history -> history.upsert(summary, maxOrdersPerCustomer));
+        });
+    }
+
+    public void orderDeleted(String customerEmail, Long orderId) {
+        afterCommit(() -> {
+            writes.incrementAndGet(stripe(customerEmail));
+            get(customerEmail).ifPresent(history -> history.remove(orderId));
+        });
+    }
+
+    /**
+     * Drops the customer's history once the transaction commits, for bulk writes
+     * that change orders without loading them. The next read reloads it.
+     */
+    public void invalidate(String customerEmail) {
+        afterCommit(() -> {
+            writes.incrementAndGet(stripe(customerEmail));
+            customers.remove(customerEmail);
+        });
+    }
+
+    private static int stripe(String customerEmail) {
+        return Math.floorMod(customerEmail.hashCode(), WRITE_STRIPES);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public static final class CustomerHistory {
+        private final List<OrderSummary> orders;
+        private final long loadedAt;
+        private boolean truncated;
+
+        private CustomerHistory(List<OrderSummary> orders, boolean truncated, long loadedAt) {
+            this.orders = orders;
+            this.truncated = truncated;
+            this.loadedAt = loadedAt;
+        }
+
+        public synchronized int size() {
+            return orders.size();
+        }
+
+        public synchronized boolean isTruncated() {
+            return truncated;
+        }
+
+        public synchronized List<OrderSummary> slice(long from, long to) {
+            if (from >= orders.size()) {
+                return List.of();
+            }
+            return new ArrayList<>(orders.subList((int) from, (int) Math.min(to, orders.size())));
+        }
+
+        private synchronized void upsert(OrderSummary summary, int maxOrders) {
+            orders.removeIf(existing -> existing.getId().equals(summary.getId()));
+            int index = Collections.binarySearch(orders, summary, NEWEST_FIRST);
+            orders.add(index < 0 ? -index - 1 : index, summary);
+            if (orders.size() > maxOrders) {
+                orders.remove(orders.size() - 1);
+                truncated = true;
+            }
+        }
+
+        private synchronized void remove(Long orderId) {
+            orders.removeIf(existing -> existing.getId().equals(orderId));
+        }
+    }
+}
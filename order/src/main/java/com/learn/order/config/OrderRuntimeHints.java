@@ -0,0 +1,42 @@
+package com.learn.order.config;
+
+import com.learn.common.dto.OrderCreatedEvent;
+import com.learn.common.money.MoneyConverter;
+import com.learn.common.money.MoneyJsonDeserializer;
+import com.learn.common.money.MoneyJsonSerializer;
+import com.learn.order.dto.CreateOrderRequest;
+import com.learn.order.dto.OrderHistoryPage;
+import com.learn.order.dto.OrderSummary;
+import com.learn.order.entity.Order;
+import com.learn.order.entity.OrderItem;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * Reflection hints for the AOT/native build: Jackson (de)serializes the DTOs,
+ * events and entities reflectively, and Kafka instantiates its serializers by
+ * class name from the configuration.
+ */
+public class OrderRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> type : new Class<?>[] {
+                OrderCreatedEvent.class, OrderCreatedEvent.OrderItemEvent.class,
+                CreateOrderRequest.class, CreateOrderRequest.OrderItemRequest.class,
+                OrderSummary.class, OrderHistoryPage.class,
+                Order.class, OrderItem.class }) {
+            hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS,
+                    MemberCategory.DECLARED_FIELDS);
+        }
+        hints.reflection().registerType(MoneyJsonSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(MoneyJsonDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(MoneyConverter.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(JsonSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(StringSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
@@ -0,0 +1,29 @@
+package com.learn.order.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.learn.common.stock.StockLevelView;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Local view of the inventory stock-levels topic when
+ * {@code stock-levels.view.enabled=true}. Warm-starts from the snapshot file
+ * and keeps following the topic until shutdown.
+ */
+@Configuration
+@ConditionalOnProperty(name = "stock-levels.view.enabled", havingValue = "true")
+public class StockLevelViewConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public StockLevelView stockLevelView(@Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                                         @Value("${kafka.topic.stock-levels}") String topic,
+                                         @Value("${stock-levels.view.snapshot-file}") String snapshotFile,
+                                         @Value("${stock-levels.view.snapshot-interval-ms}") long snapshotIntervalMs) {
+        return new StockLevelView(bootstrapServers, topic, Path.of(snapshotFile), Duration.ofMillis(snapshotIntervalMs));
+    }
+}
@@ -1,7 +1,9 @@
 package com.learn.order.controller;
 
 import com.learn.order.dto.CreateOrderRequest;
+import com.learn.order.dto.OrderHistoryPage;
 import com.learn.order.entity.Order;
+import com.learn.order.idempotency.OrderIdempotencyStore;
 import com.learn.order.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +22,7 @@ import java.util.Optional;
 public class OrderController {
     
     private final OrderService orderService;
+    private final OrderIdempotencyStore orderIdempotencyStore;
     
     @GetMapping
     public ResponseEntity<List<Order>> getAllOrders() {
@@ -43,9 +46,32 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
     
+    @GetMapping("/customer/{email}/recent")
+    public ResponseEntity<List<Order>> getRecentOrdersByCustomerEmail(@PathVariable String email) {
+        log.info("GET /api/orders/customer/{}/recent - Fetching recent orders by customer email", email);
+        List<Order> orders = orderService.getRecentOrdersByCustomerEmail(email);
+        return ResponseEntity.ok(orders);
+    }
+    
+    @GetMapping("/customer/{email}/history")
+    public ResponseEntity<OrderHistoryPage> getOrderHistory(@PathVariable String email,
+                                                            @RequestParam(defaultValue = "0") int page,
+                                                            @RequestParam(defaultValue = "20") int size) {
+        log.info("GET /api/orders/customer/{}/history - Fetching order history page: {}, size: {}", email, page, size);
+        if (page < 0 || size < 1 || size > 100) {
+            return ResponseEntity.badRequest().build();
+        }
+        OrderHistoryPage history = orderService.getOrderHistory(email, page, size);
+        return ResponseEntity.ok(history);
+    }
+    
     @PostMapping
-    public ResponseEntity<Order> createOrder(@Valid @RequestBody CreateOrderRequest request) {
+    public ResponseEntity<Order> createOrder(@Valid @RequestBody CreateOrderRequest request,
+                                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         log.info("POST /api/orders - Creating new order for customer: {}", request.getCustomerName());
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            return createOrderIdempotently(idempotencyKey, request);
+        }
         try {
             Order createdOrder = orderService.createOrder(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
@@ -55,6 +81,24 @@ public class OrderController {
         }
     }
     
+    private ResponseEntity<Order> createOrderIdempotently(String idempotencyKey, CreateOrderRequest request) {
+        try {
+            OrderIdempotencyStore.Outcome outcome = orderIdempotencyStore.createOrder(idempotencyKey, request);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header("Idempotent-Replayed", String.valueOf(outcome.isReplayed()))
+                    .body(outcome.getOrder());
+        } catch (IllegalArgumentException e) {
+            log.error("Rejected order request: {}", e.getMessage());
+            return ResponseEntity.unprocessableEntity().build();
+        } catch (IllegalStateException e) {
+            log.warn("Conflicting order request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            log.error("Failed to create order: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @PutMapping("/{id}/status")
     public ResponseEntity<Order> updateOrderStatus(@PathVariable Long id, @RequestParam String status) {
         log.info("PUT /api/orders/{}/status - Updating order status to: {}", id, status);
@@ -0,0 +1,23 @@
+package com.learn.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryPage {
+
+    private String customerEmail;
+
+    private int page;
+
+    private int size;
+
+    private boolean hasMore;
+
+    private List<OrderSummary> orders;
+}
@@ -0,0 +1,30 @@
+package com.learn.order.dto;
+
+import com.learn.common.money.Money;
+import com.learn.order.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary {
+
+    private Long id;
+
+    private String status;
+
+    private Money totalAmount;
+
+    private Integer itemCount;
+
+    private LocalDateTime createdAt;
+
+    public static OrderSummary from(Order order) {
+        int itemCount = order.getOrderItems() != null ? order.getOrderItems().size() : 0;
+        return new OrderSummary(order.getId(), order.getStatus(), order.getTotalAmount(), itemCount, order.getCreatedAt());
+    }
+}
@@ -0,0 +1,30 @@
+package com.learn.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+    
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+    
+    // Hex SHA-256 of the request's canonical JSON
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+    
+    @Column(name = "order_id")
+    private Long orderId;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
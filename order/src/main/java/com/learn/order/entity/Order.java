@@ -1,16 +1,21 @@
 package com.learn.order.entity;
 
+import com.learn.common.money.Money;
+import com.learn.common.money.MoneyConverter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_customer_email_created_at", columnList = "customer_email, created_at DESC"),
+        @Index(name = "idx_orders_status_created_at", columnList = "status, created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,7 +35,8 @@ public class Order {
     private String status;
     
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal totalAmount;
+    @Convert(converter = MoneyConverter.class)
+    private Money totalAmount;
     
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     private List<OrderItem> orderItems;
@@ -40,6 +46,16 @@ public class Order {
     
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    // Set once Kafka acknowledged the order-created event; PENDING orders without it get republished
+    @Column(name = "event_published_at")
+    @JsonIgnore
+    private LocalDateTime eventPublishedAt;
+
+    // Held by the pending order processor while it republishes the order, so other workers skip it
+    @Column(name = "republish_lease_until")
+    @JsonIgnore
+    private LocalDateTime republishLeaseUntil;
     
     @PrePersist
     protected void onCreate() {
@@ -1,14 +1,15 @@
 package com.learn.order.entity;
 
+import com.learn.common.money.Money;
+import com.learn.common.money.MoneyConverter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = @Index(name = "idx_order_items_order_id", columnList = "order_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -32,8 +33,10 @@ public class OrderItem {
     private Integer quantity;
     
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal unitPrice;
+    @Convert(converter = MoneyConverter.class)
+    private Money unitPrice;
     
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal totalPrice;
+    @Convert(converter = MoneyConverter.class)
+    private Money totalPrice;
 }
@@ -0,0 +1,206 @@
+package com.learn.order.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.learn.order.dto.CreateOrderRequest;
+import com.learn.order.entity.IdempotencyKey;
+import com.learn.order.entity.Order;
+import com.learn.order.repository.IdempotencyKeyRepository;
+import com.learn.order.service.OrderService;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Deduplicates {@code POST /api/orders} by Idempotency-Key. Repeats of a
+ * completed request are answered from a bounded in-memory map; concurrent
+ * duplicates wait for the first in-flight request instead of racing it.
+ * Keys are also persisted with the order, so requests landing on another
+ * replica (or after a restart or eviction) still resolve to the same order.
+ * A key is bound to the SHA-256 of the request's canonical JSON, so reusing
+ * it with a different payload is rejected.
+ */
+@Component
+@Slf4j
+public class OrderIdempotencyStore {
+
+    // Sorted properties and map keys make the serialized form, and so the hash, independent of field order
+    private static final ObjectMapper CANONICAL_JSON = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    private final OrderService orderService;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${orders.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${orders.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${orders.idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    public OrderIdempotencyStore(OrderService orderService, IdempotencyKeyRepository idempotencyKeyRepository,
+                                 TransactionTemplate transactionTemplate) {
+        this.orderService = orderService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Creates the order at most once per key. Throws {@link IllegalArgumentException}
+     * if the key was used with a different request, and {@link IllegalStateException}
+     * if the first request with this key is still running after the wait timeout.
+     */
+    public Outcome createOrder(String key, CreateOrderRequest request) {
+        String requestHash = requestHash(request);
+        while (true) {
+            Entry mine = new Entry(requestHash);
+            Entry existing = entries.putIfAbsent(key, mine);
+            if (existing == null) {
+                return runFirst(key, request, mine);
+            }
+            if (!existing.requestHash.equals(requestHash)) {
+                throw new IllegalArgumentException("Idempotency-Key " + key + " was already used with a different request");
+            }
+            try {
+                log.info("Duplicate request for idempotency key: {}, waiting for the first one", key);
+                return new Outcome(existing.result.get(waitTimeoutMs, TimeUnit.MILLISECONDS), true);
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Request with Idempotency-Key " + key + " is still in progress");
+            } catch (ExecutionException e) {
+                // The first attempt failed and released the key, so this one gets to try
+                log.info("First request for idempotency key: {} failed, retrying", key);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for Idempotency-Key " + key);
+            }
+        }
+    }
+
+    private Outcome runFirst(String key, CreateOrderRequest request, Entry mine) {
+        evictIfFull();
+        try {
+            Outcome outcome = findPersisted(key, mine.requestHash)
+                    .map(order -> new Outcome(order, true))
+                    .orElseGet(() -> createOrRecover(key, request, mine.requestHash));
+            mine.completedAt = System.currentTimeMillis();
+            mine.result.complete(outcome.getOrder());
+            return outcome;
+        } catch (RuntimeException e) {
+            entries.remove(key, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Outcome createOrRecover(String key, CreateOrderRequest request, String requestHash) {
+        try {
+            return new Outcome(orderService.createOrder(request, key, requestHash), false);
+        } catch (DataIntegrityViolationException e) {
+            // Another replica claimed the key between the lookup and our insert
+            log.info("Idempotency key: {} was claimed concurrently, returning the existing order", key);
+            return findPersisted(key, requestHash)
+                    .map(order -> new Outcome(order, true))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    // Runs in a read-write transaction so the read-only lookups join it and hit the primary: a key
+    // claimed moments ago may not have reached a replica yet, and missing it would fail the recovery
+    private Optional<Order> findPersisted(String key, String requestHash) {
+        return transactionTemplate.execute(status -> {
+            Optional<IdempotencyKey> persisted = idempotencyKeyRepository.findById(key);
+            if (persisted.isEmpty()) {
+                return Optional.empty();
+            }
+            if (!persisted.get().getRequestHash().equals(requestHash)) {
+                throw new IllegalArgumentException("Idempotency-Key " + key + " was already used with a different request");
+            }
+            Long orderId = persisted.get().getOrderId();
+            return orderId != null ? orderService.getOrderById(orderId) : Optional.empty();
+        });
+    }
+
+    static String requestHash(CreateOrderRequest request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(CANONICAL_JSON.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot hash order request", e);
+        }
+    }
+
+    // Runs after the new key was added, so only evicts once the map holds more than maxEntries
+    private void evictIfFull() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        evictExpired();
+        // Still full: drop arbitrary completed entries, the persisted keys keep them safe
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            if (iterator.next().completedAt > 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${orders.idempotency.purge-interval-ms:60000}")
+    @Transactional
+    public void purgeExpired() {
+        evictExpired();
+        int deleted = idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minusMinutes(ttlMinutes));
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(ttlMinutes);
+        entries.values().removeIf(entry -> entry.completedAt > 0 && entry.completedAt < cutoff);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Outcome {
+        private final Order order;
+        private final boolean replayed;
+    }
+
+    private static final class Entry {
+        private final String requestHash;
+        private final CompletableFuture<Order> result = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        private Entry(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+}
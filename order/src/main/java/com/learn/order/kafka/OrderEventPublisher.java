@@ -0,0 +1,131 @@
+package com.learn.order.kafka;
+
+import com.learn.common.dto.OrderCreatedEvent;
+import com.learn.order.entity.Order;
+import com.learn.order.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes order-created events. New orders are sent once their transaction
+ * has committed; acknowledged sends are recorded in {@code event_published_at}
+ * with periodic bulk updates (never on the producer's I/O thread). Orders left
+ * without that mark are picked up again by
+ * {@link com.learn.order.processing.PendingOrderProcessor}.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderEventPublisher {
+
+    private static final int MARK_BATCH_SIZE = 500;
+
+    private final KafkaTemplate<String, OrderCreatedEvent> kafkaTemplate;
+    private final OrderRepository orderRepository;
+
+    private final ConcurrentLinkedQueue<Long> acknowledged = new ConcurrentLinkedQueue<>();
+
+    @Value("${kafka.topic.order-created}")
+    private String orderCreatedTopic;
+
+    public void publishAfterCommit(Order order) {
+        OrderCreatedEvent event = toEvent(order);
+        Runnable publish = () -> send(event).whenComplete((result, e) -> {
+            if (e == null) {
+                log.info("Order created event published to Kafka for order: {}", order.getId());
+                acknowledged.add(order.getId());
+            } else {
+                // Left unmarked, so the pending order processor republishes it
+                log.error("Failed to publish order created event for order: {}", order.getId(), e);
+            }
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+
+    public CompletableFuture<SendResult<String, OrderCreatedEvent>> send(Order order) {
+        return send(toEvent(order));
+    }
+
+    @Scheduled(fixedDelayString = "${orders.publish.mark-interval-ms:1000}")
+    public void markAcknowledged() {
+        List<Long> ids = new ArrayList<>();
+        Long id;
+        while ((id = acknowledged.poll()) != null) {
+            ids.add(id);
+            if (ids.size() == MARK_BATCH_SIZE) {
+                mark(ids);
+                ids = new ArrayList<>();
+            }
+        }
+        if (!ids.isEmpty()) {
+            mark(ids);
+        }
+    }
+
+    private void mark(List<Long> ids) {
+        try {
+            int updated = orderRepository.markEventPublished(ids, LocalDateTime.now());
+            log.debug("Marked {} of {} orders as published", updated, ids.size());
+        } catch (Exception e) {
+            // Only costs a duplicate event later, which inventory skips by order id
+            log.error("Failed to mark {} orders as published: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    private CompletableFuture<SendResult<String, OrderCreatedEvent>> send(OrderCreatedEvent event) {
+        try {
+            return kafkaTemplate.send(orderCreatedTopic, event);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private OrderCreatedEvent toEvent(Order order) {
+        OrderCreatedEvent event = new OrderCreatedEvent();
+        event.setOrderId(order.getId());
+        event.setCustomerName(order.getCustomerName());
+        event.setCustomerEmail(order.getCustomerEmail());
+        event.setStatus(order.getStatus());
+        event.setTotalAmount(order.getTotalAmount());
+        event.setCreatedAt(order.getCreatedAt());
+
+        List<OrderCreatedEvent.OrderItemEvent> itemEvents = order.getOrderItems().stream()
+                .map(item -> {
+                    OrderCreatedEvent.OrderItemEvent itemEvent = new OrderCreatedEvent.OrderItemEvent();
+                    itemEvent.setProductId(item.getProductId());
+                    itemEvent.setProductName(item.getProductName());
+                    itemEvent.setQuantity(item.getQuantity());
+                    itemEvent.setUnitPrice(item.getUnitPrice());
+                    itemEvent.setTotalPrice(item.getTotalPrice());
+                    return itemEvent;
+                })
+                .collect(Collectors.toList());
+
+        event.setOrderItems(itemEvents);
+        return event;
+    }
+}
@@ -0,0 +1,221 @@
+package com.learn.order.partition;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+/**
+ * Keeps the monthly partitions of the orders table rolling: makes sure the
+ * upcoming months exist and moves months older than the retention window out
+ * of Postgres into gzip-compressed CSV files, one per table and month.
+ *
+ * Every replica schedules the job, but a Postgres advisory lock lets only one
+ * of them run it at a time. Whichever replica wins writes the archive, so
+ * {@code orders.partition.archive.directory} must be storage shared by all of
+ * them.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderPartitionArchiver {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String LIST_PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'orders' AND c.relname ~ '^orders_[0-9]{4}_[0-9]{2}$' " +
+            "ORDER BY c.relname";
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext('orders_partition_maintenance'))";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext('orders_partition_maintenance'))";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${orders.partition.archive.enabled:true}")
+    private boolean archiveEnabled;
+
+    @Value("${orders.partition.archive.directory:archive/orders}")
+    private String archiveDirectory;
+
+    @Value("${orders.partition.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${orders.partition.premake-months:2}")
+    private int premakeMonths;
+
+    @Scheduled(cron = "${orders.partition.maintenance-cron:0 15 2 * * *}")
+    public void maintainPartitions() {
+        // The session-level lock lives on its own connection for the whole run; the work itself
+        // uses pooled connections, so holding it does not tie up a transaction
+        try (Connection lockConnection = dataSource.getConnection()) {
+            if (!queryLock(lockConnection, TRY_LOCK_SQL)) {
+                log.info("Orders partition maintenance is running on another instance, skipping");
+                return;
+            }
+            try {
+                createUpcomingPartitions();
+                if (archiveEnabled) {
+                    archiveColdPartitions();
+                }
+            } finally {
+                queryLock(lockConnection, UNLOCK_SQL);
+            }
+        } catch (SQLException e) {
+            log.error("Orders partition maintenance lock failed", e);
+        }
+    }
+
+    private static boolean queryLock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet rs = statement.executeQuery()) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    public void createUpcomingPartitions() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        for (int i = 0; i <= premakeMonths; i++) {
+            String partition = jdbcTemplate.queryForObject(
+                    "SELECT create_orders_partition(?)", String.class, month.plusMonths(i));
+            log.debug("Ensured orders partition exists: {}", partition);
+        }
+    }
+
+    public void archiveColdPartitions() {
+        String cutoff = "orders_" + YearMonth.now().minusMonths(retentionMonths).format(PARTITION_SUFFIX);
+        List<String> partitions = jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class);
+
+        for (String partition : partitions) {
+            // Partition names sort chronologically, everything before the cutoff month is cold
+            if (partition.compareTo(cutoff) >= 0) {
+                break;
+            }
+            try {
+                archivePartition(partition);
+            } catch (Exception e) {
+                log.error("Failed to archive orders partition: {}", partition, e);
+            }
+        }
+    }
+
+    private void archivePartition(String partition) throws IOException {
+        log.info("Archiving orders partition: {}", partition);
+        Path directory = Paths.get(archiveDirectory);
+        Files.createDirectories(directory);
+
+        // Export both tables first; rows are only removed once the files are safely on disk
+        transactionTemplate.executeWithoutResult(status -> {
+            exportQuery("SELECT * FROM " + partition + " ORDER BY id",
+                    directory.resolve(partition + ".csv.gz"));
+            exportQuery("SELECT oi.* FROM order_items oi JOIN " + partition + " o ON o.id = oi.order_id ORDER BY oi.id",
+                    directory.resolve(partition.replace("orders_", "order_items_") + ".csv.gz"));
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            int items = jdbcTemplate.update(
+                    "DELETE FROM order_items WHERE order_id IN (SELECT id FROM " + partition + ")");
+            jdbcTemplate.execute("ALTER TABLE orders DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            log.info("Archived and dropped orders partition: {} ({} order items removed)", partition, items);
+        });
+    }
+
+    private void exportQuery(String sql, Path target) {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+            CsvRowWriter rowWriter = new CsvRowWriter(writer);
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(sql);
+                statement.setFetchSize(1000);
+                return statement;
+            }, (RowCallbackHandler) rowWriter::write);
+            log.info("Exported {} rows to {}", rowWriter.rows, target);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class CsvRowWriter {
+        private final Writer writer;
+        private long rows;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        void write(ResultSet rs) throws SQLException {
+            ResultSetMetaData meta = rs.getMetaData();
+            int columns = meta.getColumnCount();
+            try {
+                if (rows == 0) {
+                    for (int i = 1; i <= columns; i++) {
+                        writeField(meta.getColumnLabel(i), i);
+                    }
+                    writer.write('\n');
+                }
+                for (int i = 1; i <= columns; i++) {
+                    writeField(rs.getString(i), i);
+                }
+                writer.write('\n');
+                rows++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeField(String value, int index) throws IOException {
+            if (index > 1) {
+                writer.write(',');
+            }
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.learn.order.processing;
+
+import com.learn.order.entity.Order;
+import com.learn.order.kafka.OrderEventPublisher;
+import com.learn.order.repository.OrderRepository;
+import com.learn.order.service.OrderService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconciles orders whose order-created event never reached Kafka.
+ *
+ * Each worker claims a batch of unpublished PENDING orders with
+ * {@code FOR UPDATE SKIP LOCKED}, so workers and service replicas split the
+ * backlog without blocking each other. Within the short claiming transaction
+ * orders older than the timeout are moved to TIMED_OUT and the rest are leased
+ * for {@code republish-after-seconds}; the rows are released before the events
+ * are sent, and acknowledged ones are marked afterwards in one bulk UPDATE.
+ * Orders whose send fails are claimed again once their lease runs out.
+ *
+ * The scheduled method only hands a run to the worker pool, so the shared
+ * scheduler thread is never held while Kafka is slow or down. A worker stops
+ * draining as soon as a batch makes no progress.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "orders.pending-processor.enabled", havingValue = "true", matchIfMissing = true)
+public class PendingOrderProcessor {
+
+    public static final String TIMED_OUT = "TIMED_OUT";
+
+    private final OrderRepository orderRepository;
+    private final OrderEventPublisher orderEventPublisher;
+    private final OrderService orderService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+
+    private final int parallelism;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration republishAfter;
+    private final Duration timeout;
+    private final Duration publishTimeout;
+
+    private final Counter claimed;
+    private final Counter republished;
+    private final Counter publishFailed;
+    private final Counter timedOut;
+    private final Timer batchTimer;
+
+    // Only touched from the scheduler thread
+    private CompletableFuture<Void> currentRun = CompletableFuture.completedFuture(null);
+
+    public PendingOrderProcessor(OrderRepository orderRepository,
+                                 OrderEventPublisher orderEventPublisher,
+                                 OrderService orderService,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${orders.pending-processor.parallelism:2}") int parallelism,
+                                 @Value("${orders.pending-processor.batch-size:100}") int batchSize,
+                                 @Value("${orders.pending-processor.max-batches-per-run:50}") int maxBatchesPerRun,
+                                 @Value("${orders.pending-processor.republish-after-seconds:60}") long republishAfterSeconds,
+                                 @Value("${orders.pending-processor.timeout-minutes:60}") long timeoutMinutes,
+                                 @Value("${orders.pending-processor.publish-timeout-ms:5000}") long publishTimeoutMs) {
+        this.orderRepository = orderRepository;
+        this.orderEventPublisher = orderEventPublisher;
+        this.orderService = orderService;
+        this.transactionTemplate = transactionTemplate;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.republishAfter = Duration.ofSeconds(republishAfterSeconds);
+        this.timeout = Duration.ofMinutes(timeoutMinutes);
+        this.publishTimeout = Duration.ofMillis(publishTimeoutMs);
+        this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "pending-order-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.claimed = outcomeCounter(meterRegistry, "claimed");
+        this.republished = outcomeCounter(meterRegistry, "republished");
+        this.publishFailed = outcomeCounter(meterRegistry, "publish_failed");
+        this.timedOut = outcomeCounter(meterRegistry, "timed_out");
+        this.batchTimer = Timer.builder("orders.pending.batch")
+                .description("Time to claim, process and write back one batch of pending orders")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${orders.pending-processor.interval-ms:10000}",
+               initialDelayString = "${orders.pending-processor.interval-ms:10000}")
+    public void processPendingOrders() {
+        if (!currentRun.isDone()) {
+            log.debug("Previous pending order run still in progress, skipping this one");
+            return;
+        }
+        List<CompletableFuture<Integer>> runs = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            runs.add(CompletableFuture.supplyAsync(this::drain, workers));
+        }
+        currentRun = CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            int processed = runs.stream().mapToInt(CompletableFuture::join).sum();
+            if (processed > 0) {
+                log.info("Processed {} pending orders with {} workers", processed, parallelism);
+            }
+        });
+    }
+
+    // Claims batches until the queue is empty (a short batch), a batch makes no progress
+    // (e.g. Kafka is down) or the per-run cap is reached
+    private int drain() {
+        int processed = 0;
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                BatchResult batch = batchTimer.record(this::processBatch);
+                processed += batch.claimed();
+                if (batch.claimed() < batchSize) {
+                    break;
+                }
+                if (batch.completed() == 0) {
+                    log.warn("No order of a pending batch could be republished, retrying on the next run");
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Pending order worker failed: {}", e.getMessage(), e);
+        }
+        return processed;
+    }
+
+    private BatchResult processBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        Claim claim = transactionTemplate.execute(status -> claim(now));
+        if (claim.ids().isEmpty()) {
+            return new BatchResult(0, 0);
+        }
+
+        // Sends run concurrently and outside the claiming transaction, so no row lock is held meanwhile
+        Map<Long, CompletableFuture<?>> sends = new LinkedHashMap<>();
+        for (Order order : claim.toPublish()) {
+            sends.put(order.getId(), orderEventPublisher.send(order));
+        }
+        List<Long> published = new ArrayList<>();
+        long deadline = System.nanoTime() + publishTimeout.toNanos();
+        for (Map.Entry<Long, CompletableFuture<?>> send : sends.entrySet()) {
+            try {
+                send.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                published.add(send.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("Republishing order {} failed: {}", send.getKey(), e.getMessage());
+            }
+        }
+        if (!published.isEmpty()) {
+            orderRepository.markEventPublished(published, now);
+            republished.increment(published.size());
+        }
+        publishFailed.increment(sends.size() - published.size());
+
+        log.debug("Pending order batch: claimed {}, republished {}, timed out {}",
+                claim.ids().size(), published.size(), claim.timedOut());
+        return new BatchResult(claim.ids().size(), published.size() + claim.timedOut());
+    }
+
+    // Locks a batch, times out expired orders and leases the rest; the locks end with the transaction
+    private Claim claim(LocalDateTime now) {
+        List<Long> ids = orderRepository.claimUnpublishedPending(now.minus(republishAfter), now, batchSize);
+        if (ids.isEmpty()) {
+            return new Claim(ids, List.of(), 0);
+        }
+        claimed.increment(ids.size());
+
+        LocalDateTime expiredBefore = now.minus(timeout);
+        List<Order> expired = new ArrayList<>();
+        List<Order> toPublish = new ArrayList<>();
+        for (Order order : orderRepository.findWithItemsByIdIn(ids)) {
+            if (order.getCreatedAt().isBefore(expiredBefore)) {
+                expired.add(order);
+            } else {
+                toPublish.add(order);
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            timedOut.increment(orderService.updatePendingStatus(expired.stream().map(Order::getId).toList(), TIMED_OUT));
+        }
+        if (!toPublish.isEmpty()) {
+            orderRepository.leaseForRepublish(toPublish.stream().map(Order::getId).toList(), now.plus(republishAfter));
+        }
+        return new Claim(ids, toPublish, expired.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private record Claim(List<Long> ids, List<Order> toPublish, int timedOut) {
+    }
+
+    private record BatchResult(int claimed, int completed) {
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("orders.pending.processed")
+                .description("Pending orders handled by the background processor")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
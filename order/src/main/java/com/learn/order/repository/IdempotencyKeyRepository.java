@@ -0,0 +1,28 @@
+package com.learn.order.repository;
+
+import com.learn.order.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    // Plain INSERT (not save/merge) so a key claimed by another replica fails on the primary key
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, created_at) VALUES (:key, :requestHash, :createdAt)",
+           nativeQuery = true)
+    int claim(@Param("key") String key, @Param("requestHash") String requestHash, @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyKey k SET k.orderId = :orderId WHERE k.key = :key")
+    int attachOrder(@Param("key") String key, @Param("orderId") Long orderId);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -1,9 +1,18 @@
 package com.learn.order.repository;
 
+import com.learn.order.dto.OrderSummary;
 import com.learn.order.entity.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,4 +21,44 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByCustomerEmail(String customerEmail);
     
     List<Order> findByStatus(String status);
+
+    // Bounding created_at lets Postgres prune the orders table down to the hot partitions
+    @Query("SELECT o FROM Order o WHERE o.customerEmail = :customerEmail AND o.createdAt >= :since ORDER BY o.createdAt DESC")
+    List<Order> findRecentByCustomerEmail(@Param("customerEmail") String customerEmail, @Param("since") LocalDateTime since);
+
+    // Projects straight to summaries so order items are counted, not loaded
+    @Query("SELECT new com.learn.order.dto.OrderSummary(o.id, o.status, o.totalAmount, SIZE(o.orderItems), o.createdAt) " +
+           "FROM Order o WHERE o.customerEmail = :customerEmail ORDER BY o.createdAt DESC, o.id DESC")
+    Slice<OrderSummary> findSummariesByCustomerEmail(@Param("customerEmail") String customerEmail, Pageable pageable);
+
+    // Work-queue claim: matches the partial index idx_orders_pending_unpublished and skips rows
+    // locked by another worker or replica, or still leased to one, instead of waiting on them
+    @Query(value = "SELECT id FROM orders WHERE status = 'PENDING' AND event_published_at IS NULL " +
+                   "AND created_at < :createdBefore AND (republish_lease_until IS NULL OR republish_lease_until < :now) " +
+                   "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> claimUnpublishedPending(@Param("createdBefore") LocalDateTime createdBefore, @Param("now") LocalDateTime now,
+                                       @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.republishLeaseUntil = :leaseUntil WHERE o.id IN :ids")
+    int leaseForRepublish(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.id IN :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Publication state is not part of OrderSummary, so this leaves the history cache valid
+    @Transactional
+    @Modifying
+    @Query("UPDATE Order o SET o.eventPublishedAt = :publishedAt WHERE o.id IN :ids")
+    int markEventPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    // Only moves orders that are still PENDING, so a concurrent status change wins. Returns the
+    // customer of every moved order; call it through OrderService.updatePendingStatus so those
+    // customers' cached histories are dropped.
+    @Transactional
+    @Query(value = "UPDATE orders SET status = :status, updated_at = :updatedAt " +
+            "WHERE id IN (:ids) AND status = 'PENDING' RETURNING customer_email", nativeQuery = true)
+    List<String> updatePendingStatus(@Param("ids") Collection<Long> ids, @Param("status") String status,
+                                     @Param("updatedAt") LocalDateTime updatedAt);
 }
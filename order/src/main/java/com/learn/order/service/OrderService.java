@@ -1,9 +1,11 @@
 package com.learn.order.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import com.learn.order.dto.CreateOrderRequest;
+import com.learn.order.dto.OrderHistoryPage;
 import com.learn.order.entity.Order;
 
 public interface OrderService {
@@ -13,9 +15,22 @@ public interface OrderService {
 
     List<Order> getOrdersByCustomerEmail(String customerEmail);
 
+    List<Order> getRecentOrdersByCustomerEmail(String customerEmail);
+
+    OrderHistoryPage getOrderHistory(String customerEmail, int page, int size);
+
     Order createOrder(CreateOrderRequest request);
 
+    Order createOrder(CreateOrderRequest request, String idempotencyKey, String requestHash);
+
     Order updateOrderStatus(Long id, String status);
 
+    /**
+     * Moves the given orders to {@code status} if they are still PENDING and
+     * returns how many moved. All bulk status changes go through here so the
+     * affected customers' cached histories are invalidated.
+     */
+    int updatePendingStatus(Collection<Long> ids, String status);
+
     void deleteOrder(Long id);
 }
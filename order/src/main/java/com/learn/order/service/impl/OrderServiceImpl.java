@@ -1,21 +1,27 @@
 package com.learn.order.service.impl;
 
-import com.learn.common.dto.OrderCreatedEvent;
+import com.learn.common.money.Money;
+import com.learn.order.cache.CustomerOrderHistoryCache;
 import com.learn.order.dto.CreateOrderRequest;
+import com.learn.order.dto.OrderHistoryPage;
+import com.learn.order.dto.OrderSummary;
 import com.learn.order.entity.Order;
 import com.learn.order.entity.OrderItem;
+import com.learn.order.kafka.OrderEventPublisher;
+import com.learn.order.repository.IdempotencyKeyRepository;
 import com.learn.order.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import com.learn.order.service.OrderService;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -26,13 +32,18 @@ import java.util.stream.Collectors;
 @Transactional
 public class OrderServiceImpl implements OrderService {
 
+    private static final Money SIMPLIFIED_UNIT_PRICE = Money.ofMinor(1000);
+
     private final OrderRepository orderRepository;
-    private final KafkaTemplate<String, OrderCreatedEvent> kafkaTemplate;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final OrderEventPublisher orderEventPublisher;
+    private final CustomerOrderHistoryCache orderHistoryCache;
 
-    @Value("${kafka.topic.order-created}")
-    private String orderCreatedTopic;
+    @Value("${orders.partition.hot-window-days:90}")
+    private int hotWindowDays;
 
     @Override
+    @Transactional(readOnly = true)
     public List<Order> getAllOrders() {
         log.info("Fetching all orders");
         List<Order> orders = orderRepository.findAll();
@@ -41,6 +52,7 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Order> getOrderById(Long id) {
         log.info("Fetching order with id: {}", id);
         Optional<Order> order = orderRepository.findById(id);
@@ -53,6 +65,7 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Order> getOrdersByCustomerEmail(String customerEmail) {
         log.info("Fetching orders for customer email: {}", customerEmail);
         List<Order> orders = orderRepository.findByCustomerEmail(customerEmail);
@@ -60,6 +73,48 @@ public class OrderServiceImpl implements OrderService {
         return orders;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Order> getRecentOrdersByCustomerEmail(String customerEmail) {
+        log.info("Fetching recent orders for customer email: {} (last {} days)", customerEmail, hotWindowDays);
+        LocalDateTime since = LocalDateTime.now().minusDays(hotWindowDays);
+        List<Order> orders = orderRepository.findRecentByCustomerEmail(customerEmail, since);
+        log.info("Found {} recent orders for customer: {}", orders.size(), customerEmail);
+        return orders;
+    }
+
+    // Not readOnly: the cache is filled from the primary, a lagging replica would install a stale history.
+    // Cache hits never touch the database, so this costs nothing on the hot path
+    @Override
+    public OrderHistoryPage getOrderHistory(String customerEmail, int page, int size) {
+        log.info("Fetching order history for customer email: {}, page: {}, size: {}", customerEmail, page, size);
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("Invalid order history page: " + page + ", size: " + size);
+        }
+
+        CustomerOrderHistoryCache.CustomerHistory history = orderHistoryCache.get(customerEmail)
+                .orElseGet(() -> {
+                    log.debug("Order history cache miss for customer: {}", customerEmail);
+                    long stamp = orderHistoryCache.loadStamp(customerEmail);
+                    Slice<OrderSummary> loaded = orderRepository.findSummariesByCustomerEmail(
+                            customerEmail, PageRequest.of(0, orderHistoryCache.getMaxOrdersPerCustomer()));
+                    return orderHistoryCache.load(customerEmail, loaded.getContent(), loaded.hasNext(), stamp);
+                });
+
+        long from = (long) page * size;
+        long to = from + size;
+        if (to <= history.size() || !history.isTruncated()) {
+            List<OrderSummary> orders = history.slice(from, to);
+            boolean hasMore = to < history.size() || history.isTruncated();
+            return new OrderHistoryPage(customerEmail, page, size, hasMore, orders);
+        }
+
+        // Pages past the cached window are rare, serve them straight from the database
+        log.debug("Order history page {} for customer: {} is beyond the cached window", page, customerEmail);
+        Slice<OrderSummary> slice = orderRepository.findSummariesByCustomerEmail(customerEmail, PageRequest.of(page, size));
+        return new OrderHistoryPage(customerEmail, page, size, slice.hasNext(), slice.getContent());
+    }
+
     @Override
     public Order createOrder(CreateOrderRequest request) {
         log.info("Creating new order for customer: {}", request.getCustomerName());
@@ -80,8 +135,8 @@ public class OrderServiceImpl implements OrderService {
                     orderItem.setProductId(item.getProductId());
                     orderItem.setProductName("Product " + item.getProductId()); // Simplified
                     orderItem.setQuantity(item.getQuantity());
-                    orderItem.setUnitPrice(BigDecimal.valueOf(10.00)); // Simplified price
-                    orderItem.setTotalPrice(BigDecimal.valueOf(10.00).multiply(BigDecimal.valueOf(item.getQuantity())));
+                    orderItem.setUnitPrice(SIMPLIFIED_UNIT_PRICE); // Simplified price
+                    orderItem.setTotalPrice(SIMPLIFIED_UNIT_PRICE.times(item.getQuantity()));
                     return orderItem;
                 })
                 .collect(Collectors.toList());
@@ -89,20 +144,34 @@ public class OrderServiceImpl implements OrderService {
         order.setOrderItems(orderItems);
 
         // Calculate total amount
-        BigDecimal totalAmount = orderItems.stream()
-                .map(OrderItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Money totalAmount = Money.zero(Money.DEFAULT_CURRENCY);
+        for (OrderItem orderItem : orderItems) {
+            totalAmount = totalAmount.plus(orderItem.getTotalPrice());
+        }
         order.setTotalAmount(totalAmount);
 
         Order savedOrder = orderRepository.save(order);
         log.info("Order created successfully with id: {}, total amount: {}", savedOrder.getId(), totalAmount);
+        orderHistoryCache.orderSaved(savedOrder.getCustomerEmail(), OrderSummary.from(savedOrder));
 
-        // Publish event to Kafka
-        publishOrderCreatedEvent(savedOrder);
+        // Publish event to Kafka once the order is committed
+        orderEventPublisher.publishAfterCommit(savedOrder);
 
         return savedOrder;
     }
 
+    @Override
+    public Order createOrder(CreateOrderRequest request, String idempotencyKey, String requestHash) {
+        log.info("Creating new order for customer: {} with idempotency key: {}", request.getCustomerName(), idempotencyKey);
+
+        // Claim the key first: a concurrent claim on another replica blocks here until that
+        // transaction ends and then fails, so only one of them creates the order and publishes
+        idempotencyKeyRepository.claim(idempotencyKey, requestHash, LocalDateTime.now());
+        Order order = createOrder(request);
+        idempotencyKeyRepository.attachOrder(idempotencyKey, order.getId());
+        return order;
+    }
+
     @Override
     public Order updateOrderStatus(Long id, String status) {
         log.info("Updating order status for id: {} to: {}", id, status);
@@ -119,53 +188,33 @@ public class OrderServiceImpl implements OrderService {
 
         Order updatedOrder = orderRepository.save(order);
         log.info("Order status updated successfully: {} -> {}", id, status);
+        orderHistoryCache.orderSaved(updatedOrder.getCustomerEmail(), OrderSummary.from(updatedOrder));
         return updatedOrder;
     }
 
+    @Override
+    public int updatePendingStatus(Collection<Long> ids, String status) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<String> customers = orderRepository.updatePendingStatus(ids, status, LocalDateTime.now());
+        customers.stream().distinct().forEach(orderHistoryCache::invalidate);
+        log.info("Moved {} of {} pending orders to: {}", customers.size(), ids.size(), status);
+        return customers.size();
+    }
+
     @Override
     public void deleteOrder(Long id) {
         log.info("Deleting order with id: {}", id);
 
-        if (!orderRepository.existsById(id)) {
+        Optional<Order> orderOpt = orderRepository.findById(id);
+        if (orderOpt.isEmpty()) {
             log.error("Order not found with id: {}", id);
             throw new RuntimeException("Order not found with id: " + id);
         }
 
-        orderRepository.deleteById(id);
+        orderRepository.delete(orderOpt.get());
+        orderHistoryCache.orderDeleted(orderOpt.get().getCustomerEmail(), id);
         log.info("Order deleted successfully with id: {}", id);
     }
-
-    private void publishOrderCreatedEvent(Order order) {
-        try {
-            OrderCreatedEvent event = new OrderCreatedEvent();
-            event.setOrderId(order.getId());
-            event.setCustomerName(order.getCustomerName());
-            event.setCustomerEmail(order.getCustomerEmail());
-            event.setStatus(order.getStatus());
-            event.setTotalAmount(order.getTotalAmount());
-            event.setCreatedAt(order.getCreatedAt());
-
-            List<OrderCreatedEvent.OrderItemEvent> itemEvents = order.getOrderItems().stream()
-                    .map(item -> {
-                        OrderCreatedEvent.OrderItemEvent itemEvent = new OrderCreatedEvent.OrderItemEvent();
-                        itemEvent.setProductId(item.getProductId());
-                        itemEvent.setProductName(item.getProductName());
-                        itemEvent.setQuantity(item.getQuantity());
-                        itemEvent.setUnitPrice(item.getUnitPrice());
-                        itemEvent.setTotalPrice(item.getTotalPrice());
-                        return itemEvent;
-                    })
-                    .collect(Collectors.toList());
-
-            event.setOrderItems(itemEvents);
-
-            kafkaTemplate.send(orderCreatedTopic, event);
-            log.info("Order created event published to Kafka for order: {}", order.getId());
-
-        } catch (Exception e) {
-            log.error("Failed to publish order created event for order: {}", order.getId(), e);
-            // In production, you might want to handle this differently (e.g., retry
-            // mechanism)
-        }
-    }
 }
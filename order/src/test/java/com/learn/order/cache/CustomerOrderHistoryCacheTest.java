@@ -0,0 +1,153 @@
+package com.learn.order.cache;
+
+import com.learn.common.money.Money;
+import com.learn.order.cache.CustomerOrderHistoryCache.CustomerHistory;
+import com.learn.order.dto.OrderSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CustomerOrderHistoryCacheTest {
+
+	private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+	@AfterEach
+	void clearSynchronization() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedCustomer() {
+		CustomerOrderHistoryCache cache = new CustomerOrderHistoryCache(2, 10, 60);
+		fill(cache, "a@example.com", order(1, 0));
+		fill(cache, "b@example.com", order(2, 0));
+
+		assertTrue(cache.get("a@example.com").isPresent());
+		fill(cache, "c@example.com", order(3, 0));
+
+		assertTrue(cache.get("a@example.com").isPresent());
+		assertFalse(cache.get("b@example.com").isPresent());
+		assertTrue(cache.get("c@example.com").isPresent());
+	}
+
+	@Test
+	void expiresEntriesAfterTtl() throws InterruptedException {
+		CustomerOrderHistoryCache cache = new CustomerOrderHistoryCache(10, 10, 0);
+		fill(cache, "a@example.com", order(1, 0));
+
+		Thread.sleep(2);
+
+		assertFalse(cache.get("a@example.com").isPresent());
+	}
+
+	@Test
+	void keepsEntriesWithinTtl() {
+		CustomerOrderHistoryCache cache = new CustomerOrderHistoryCache(10, 10, 60);
+		fill(cache, "a@example.com", order(1, 0));
+
+		assertTrue(cache.get("a@example.com").isPresent());
+	}
+
+	@Test
+	void doesNotKeepFillThatRacedWithCommittedWrite() {
+		CustomerOrderHistoryCache cache = new CustomerOrderHistoryCache(10, 10, 60);
+		long stamp = cache.loadStamp("a@example.com");
+
+		cache.orderSaved("a@example.com", order(2, 1));
+		CustomerHistory loaded = cache.load("a@example.com", List.of(order(1, 0)), false, stamp);
+
+		assertEquals(1, loaded.size());
+		assertFalse(cache.get("a@example.com").isPresent());
+	}
+
+	@Test
+	void keepsFillWhenWriteHasNotCommitted() {
+		CustomerOrderHistoryCache cache = new CustomerOrderHistoryCache(10, 10, 60);
+		long stamp = cache.loadStamp("a@example.com");
+
+		TransactionSynchronizationManager.initSynchronization();
+		cache.orderSaved("a@example.com", order(2, 1));
+		cache.load("a@example.com", List.of(order(1, 0)), false, stamp);
+
+		CustomerHistory history = cache.get("a@example.com").orElseThrow();
+		assertEquals(List.of(1L), ids(history));
+
+		commit();
+
+		assertEquals(List.of(2L, 1L), ids(history));
+	}
+
+	@Test
+	void appliesWritesOnlyAfterCommit() {
+		CustomerOrderHistoryCache cache = new CustomerOrderHistoryCache(10, 10, 60);
+		fill(cache, "a@example.com", order(1, 0));
+		CustomerHistory history = cache.get("a@example.com").orElseThrow();
+
+		TransactionSynchronizationManager.initSynchronization();
+		cache.orderSaved("a@example.com", order(2, 1));
+		cache.orderDeleted("a@example.com", 1L);
+		assertEquals(List.of(1L), ids(history));
+
+		commit();
+
+		assertEquals(List.of(2L), ids(history));
+	}
+
+	@Test
+	void dropsOldestOrderBeyondLimit() {
+		CustomerOrderHistoryCache cache = new CustomerOrderHistoryCache(10, 2, 60);
+		fill(cache, "a@example.com", order(2, 1), order(1, 0));
+
+		cache.orderSaved("a@example.com", order(3, 2));
+
+		CustomerHistory history = cache.get("a@example.com").orElseThrow();
+		assertEquals(List.of(3L, 2L), ids(history));
+		assertTrue(history.isTruncated());
+	}
+
+	@Test
+	void invalidatesCustomerAfterCommit() {
+		CustomerOrderHistoryCache cache = new CustomerOrderHistoryCache(10, 10, 60);
+		fill(cache, "a@example.com", order(1, 0));
+		long stamp = cache.loadStamp("b@example.com");
+
+		TransactionSynchronizationManager.initSynchronization();
+		cache.invalidate("a@example.com");
+		cache.invalidate("b@example.com");
+		assertTrue(cache.get("a@example.com").isPresent());
+
+		commit();
+
+		assertFalse(cache.get("a@example.com").isPresent());
+		cache.load("b@example.com", List.of(order(2, 0)), false, stamp);
+		assertFalse(cache.get("b@example.com").isPresent());
+	}
+
+	private static void fill(CustomerOrderHistoryCache cache, String customerEmail, OrderSummary... newestFirst) {
+		cache.load(customerEmail, List.of(newestFirst), false, cache.loadStamp(customerEmail));
+	}
+
+	private static void commit() {
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		synchronizations.forEach(TransactionSynchronization::afterCommit);
+	}
+
+	private static OrderSummary order(long id, int minutesAfter) {
+		return new OrderSummary(id, "PENDING", Money.ofMinor(1000), 1, NOW.plusMinutes(minutesAfter));
+	}
+
+	private static List<Long> ids(CustomerHistory history) {
+		return history.slice(0, history.size()).stream().map(OrderSummary::getId).toList();
+	}
+}
@@ -0,0 +1,181 @@
+package com.learn.order.idempotency;
+
+import com.learn.order.controller.OrderController;
+import com.learn.order.dto.CreateOrderRequest;
+import com.learn.order.entity.IdempotencyKey;
+import com.learn.order.entity.Order;
+import com.learn.order.repository.IdempotencyKeyRepository;
+import com.learn.order.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the store through {@link OrderController}, with the order service and
+ * the key table replaced by an in-memory stand-in.
+ */
+class OrderIdempotencyStoreTest {
+
+	private final OrderService orderService = mock(OrderService.class);
+	private final IdempotencyKeyRepository idempotencyKeyRepository = mock(IdempotencyKeyRepository.class);
+	private final Map<String, IdempotencyKey> persistedKeys = new ConcurrentHashMap<>();
+	private final AtomicLong orderIds = new AtomicLong();
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	// While set, order creation blocks on it so the request stays in flight
+	private volatile CountDownLatch gate;
+
+	private OrderIdempotencyStore store;
+	private OrderController controller;
+
+	@BeforeEach
+	void setUp() {
+		store = new OrderIdempotencyStore(orderService, idempotencyKeyRepository,
+				new TransactionTemplate(mock(PlatformTransactionManager.class)));
+		ReflectionTestUtils.setField(store, "ttlMinutes", 60L);
+		ReflectionTestUtils.setField(store, "maxEntries", 100);
+		ReflectionTestUtils.setField(store, "waitTimeoutMs", 100L);
+		controller = new OrderController(orderService, store);
+
+		when(idempotencyKeyRepository.findById(anyString()))
+				.thenAnswer(invocation -> Optional.ofNullable(persistedKeys.get(invocation.<String>getArgument(0))));
+		when(orderService.getOrderById(anyLong()))
+				.thenAnswer(invocation -> Optional.of(order(invocation.getArgument(0))));
+		doAnswer(invocation -> {
+			CountDownLatch release = gate;
+			if (release != null) {
+				started.countDown();
+				release.await(5, TimeUnit.SECONDS);
+			}
+			Order order = order(orderIds.incrementAndGet());
+			String key = invocation.getArgument(1);
+			persistedKeys.put(key, new IdempotencyKey(key, invocation.getArgument(2), order.getId(), LocalDateTime.now()));
+			return order;
+		}).when(orderService).createOrder(any(CreateOrderRequest.class), anyString(), anyString());
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void answersDuplicateWithConflictWhileInFlightAndReplaysAfterwards() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		gate = release;
+		Future<ResponseEntity<Order>> first = executor.submit(() -> controller.createOrder(request("a@example.com"), "key-1"));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		assertEquals(HttpStatus.CONFLICT, controller.createOrder(request("a@example.com"), "key-1").getStatusCode());
+
+		release.countDown();
+		ResponseEntity<Order> created = first.get(5, TimeUnit.SECONDS);
+		assertEquals(HttpStatus.CREATED, created.getStatusCode());
+		assertEquals("false", created.getHeaders().getFirst("Idempotent-Replayed"));
+
+		ResponseEntity<Order> replayed = controller.createOrder(request("a@example.com"), "key-1");
+		assertEquals(HttpStatus.CREATED, replayed.getStatusCode());
+		assertEquals("true", replayed.getHeaders().getFirst("Idempotent-Replayed"));
+		assertEquals(created.getBody().getId(), replayed.getBody().getId());
+		verify(orderService, times(1)).createOrder(any(CreateOrderRequest.class), anyString(), anyString());
+	}
+
+	@Test
+	void rejectsKeyReusedWithDifferentRequest() {
+		assertEquals(HttpStatus.CREATED, controller.createOrder(request("a@example.com"), "key-1").getStatusCode());
+
+		assertEquals(HttpStatus.UNPROCESSABLE_ENTITY,
+				controller.createOrder(request("b@example.com"), "key-1").getStatusCode());
+		verify(orderService, times(1)).createOrder(any(CreateOrderRequest.class), anyString(), anyString());
+	}
+
+	@Test
+	void rejectsKeyPersistedWithDifferentRequest() {
+		// Claimed through another replica, so only the key table knows it
+		String otherHash = OrderIdempotencyStore.requestHash(request("b@example.com"));
+		persistedKeys.put("key-1", new IdempotencyKey("key-1", otherHash, 7L, LocalDateTime.now()));
+
+		assertEquals(HttpStatus.UNPROCESSABLE_ENTITY,
+				controller.createOrder(request("a@example.com"), "key-1").getStatusCode());
+		verify(orderService, never()).createOrder(any(CreateOrderRequest.class), anyString(), anyString());
+	}
+
+	@Test
+	void evictsCompletedKeysWhenFullAndRecoversThemFromTheKeyTable() {
+		ReflectionTestUtils.setField(store, "maxEntries", 2);
+		ResponseEntity<Order> first = controller.createOrder(request("a@example.com"), "key-1");
+		ResponseEntity<Order> second = controller.createOrder(request("b@example.com"), "key-2");
+		controller.createOrder(request("c@example.com"), "key-3");
+		verify(idempotencyKeyRepository, times(3)).findById(anyString());
+		// Room again, so asking for the first two keys evicts nothing more
+		ReflectionTestUtils.setField(store, "maxEntries", 100);
+
+		ResponseEntity<Order> firstAgain = controller.createOrder(request("a@example.com"), "key-1");
+		ResponseEntity<Order> secondAgain = controller.createOrder(request("b@example.com"), "key-2");
+
+		// One of the first two keys was evicted for the third and had to be looked up again
+		verify(idempotencyKeyRepository, times(4)).findById(anyString());
+		assertEquals(first.getBody().getId(), firstAgain.getBody().getId());
+		assertEquals(second.getBody().getId(), secondAgain.getBody().getId());
+		assertEquals("true", firstAgain.getHeaders().getFirst("Idempotent-Replayed"));
+		assertEquals("true", secondAgain.getHeaders().getFirst("Idempotent-Replayed"));
+		verify(orderService, times(3)).createOrder(any(CreateOrderRequest.class), anyString(), anyString());
+	}
+
+	@Test
+	void keepsInFlightKeysWhenFull() throws Exception {
+		ReflectionTestUtils.setField(store, "maxEntries", 1);
+		CountDownLatch release = new CountDownLatch(1);
+		gate = release;
+		Future<ResponseEntity<Order>> first = executor.submit(() -> controller.createOrder(request("a@example.com"), "key-1"));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		gate = null;
+
+		assertEquals(HttpStatus.CREATED, controller.createOrder(request("b@example.com"), "key-2").getStatusCode());
+		assertEquals(HttpStatus.CONFLICT, controller.createOrder(request("a@example.com"), "key-1").getStatusCode());
+
+		release.countDown();
+		assertEquals(HttpStatus.CREATED, first.get(5, TimeUnit.SECONDS).getStatusCode());
+		verify(orderService, times(2)).createOrder(any(CreateOrderRequest.class), anyString(), anyString());
+	}
+
+	private static CreateOrderRequest request(String customerEmail) {
+		return new CreateOrderRequest("Jane Doe", customerEmail, List.of(new CreateOrderRequest.OrderItemRequest(1L, 2)));
+	}
+
+	private static Order order(Long id) {
+		Order order = new Order();
+		order.setId(id);
+		return order;
+	}
+}
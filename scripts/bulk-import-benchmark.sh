@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+# Compares loading products through the per-item API (POST /api/products) with
+# the streaming bulk endpoint (POST /api/products/bulk) of the inventory service.
+#
+# Usage: scripts/bulk-import-benchmark.sh [base-url] [bulk-rows] [per-item-rows]
+# Example: scripts/bulk-import-benchmark.sh http://localhost:8281 500000 2000
+#
+# The per-item run uses a smaller sample (one keep-alive curl for all requests)
+# and is extrapolated to bulk-rows. Product names carry a run prefix, so the
+# script can be re-run against the same database.
+set -euo pipefail
+
+BASE_URL=${1:-http://localhost:8281}
+BULK_ROWS=${2:-100000}
+ITEM_ROWS=${3:-1000}
+RUN=bench-$(date +%s)
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+now_ms() { date +%s%3N; }
+
+# Per-item API: one JSON request per product
+for i in $(seq 1 "$ITEM_ROWS"); do
+  printf 'url = "%s/api/products"\nheader = "Content-Type: application/json"\ndata = "{\\"name\\":\\"%s-item-%d\\",\\"description\\":\\"benchmark\\",\\"price\\":9.99,\\"stockQuantity\\":100,\\"category\\":\\"Benchmark\\"}"\noutput = "/dev/null"\nnext\n' \
+    "$BASE_URL" "$RUN" "$i"
+done > "$WORK/items.curl"
+
+start=$(now_ms)
+curl -s -K "$WORK/items.curl"
+item_ms=$(( $(now_ms) - start ))
+echo "per-item API: $ITEM_ROWS products in ${item_ms} ms ($(( ITEM_ROWS * 1000 / (item_ms + 1) )) products/s)"
+echo "per-item API: extrapolated to $BULK_ROWS products: $(( item_ms * BULK_ROWS / ITEM_ROWS / 1000 )) s"
+
+# Bulk endpoint: the whole catalog as one streamed CSV body
+{
+  echo "id,name,description,price,stockQuantity,category"
+  seq 1 "$BULK_ROWS" | awk -v run="$RUN" '{ printf ",%s-bulk-%d,\"benchmark, bulk\",9.99,100,Benchmark\n", run, $1 }'
+} > "$WORK/products.csv"
+
+start=$(now_ms)
+curl -s -H "Content-Type: text/csv" --data-binary @"$WORK/products.csv" "$BASE_URL/api/products/bulk" \
+  -o "$WORK/bulk-result.json" -w 'bulk endpoint: HTTP %{http_code}\n'
+bulk_ms=$(( $(now_ms) - start ))
+echo "bulk endpoint: $BULK_ROWS products in ${bulk_ms} ms ($(( BULK_ROWS * 1000 / (bulk_ms + 1) )) products/s)"
+head -c 300 "$WORK/bulk-result.json"; echo
@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+# Measures time-to-first-response and first-request latency for a service,
+# comparing the plain fat jar, the AOT + CDS build and (if built) the native image.
+#
+# Usage: scripts/startup-benchmark.sh <order|inventory|gateway> <port> <path> [runs]
+# Example: scripts/startup-benchmark.sh order 8181 /api/orders 5
+#
+# Build first:
+#   mvn clean package -DskipTests                     -> target/<service>-0.0.1-SNAPSHOT.jar
+#   mvn clean package -DskipTests -Pfast-startup      -> target/app/ (+ application.jsa)
+#   mvn -Pnative -DskipTests native:compile           -> target/<service> (optional)
+set -euo pipefail
+
+SERVICE=${1:?service name required}
+PORT=${2:?port required}
+REQUEST_PATH=${3:?request path required}
+RUNS=${4:-3}
+
+cd "$(dirname "$0")/../$SERVICE"
+JAR="${SERVICE}-0.0.1-SNAPSHOT.jar"
+
+now_ms() { date +%s%3N; }
+
+measure() {
+  local label=$1; shift
+  local total_ready=0 total_first=0
+  for run in $(seq 1 "$RUNS"); do
+    local start ready first
+    start=$(now_ms)
+    "$@" --server.port="$PORT" > "target/benchmark-$label.log" 2>&1 &
+    local pid=$!
+    until curl -s -o /dev/null "http://localhost:$PORT$REQUEST_PATH"; do
+      if ! kill -0 "$pid" 2>/dev/null; then
+        echo "$label: process exited, see target/benchmark-$label.log" >&2
+        return 1
+      fi
+      sleep 0.05
+    done
+    ready=$(( $(now_ms) - start ))
+    # First request after readiness that the service fully handles (warm-up cost shows up here)
+    first=$(curl -s -o /dev/null -w '%{time_total}' "http://localhost:$PORT$REQUEST_PATH" | awk '{ printf "%d", $1 * 1000 }')
+    kill "$pid"; wait "$pid" 2>/dev/null || true
+    total_ready=$(( total_ready + ready )); total_first=$(( total_first + first ))
+    echo "$label run $run: ready ${ready} ms, next request ${first} ms"
+  done
+  echo "$label average: ready $(( total_ready / RUNS )) ms, next request $(( total_first / RUNS )) ms"
+}
+
+if [ -f "target/$JAR" ]; then
+  measure jar java -jar "target/$JAR"
+fi
+if [ -f target/app/application.jsa ]; then
+  measure aot-cds java -XX:SharedArchiveFile=target/app/application.jsa -Dspring.aot.enabled=true -jar "target/app/$JAR"
+fi
+if [ -x "target/$SERVICE" ]; then
+  measure native "target/$SERVICE"
+fi